@@ -0,0 +1,194 @@
+package info.kgeorgiy.ja.Zaitsev.arrayset;
+
+import java.util.*;
+
+/**
+ * Base of immutable {@link NavigableSet}s stored as a sorted array range.
+ * <p>
+ * Implementations provide positional access, binary search and O(1) range views,
+ * all navigation methods are built on them.
+ *
+ * @param <E> element type.
+ * @author Zaitsev Ilya
+ */
+abstract class AbstractArraySet<E> extends AbstractSet<E> implements NavigableSet<E> {
+
+    /**
+     * Returns element at {@code index} in ascending order.
+     */
+    abstract E get(int index);
+
+    /**
+     * Searches for {@code key} as {@link Arrays#binarySearch(Object[], Object)} does.
+     */
+    abstract int search(E key);
+
+    /**
+     * Returns view of elements with indices in {@code [from, to)}.
+     */
+    abstract AbstractArraySet<E> range(int from, int to);
+
+    @SuppressWarnings("unchecked")
+    final int compare(E a, E b) {
+        if (comparator() == null) {
+            return ((Comparable<? super E>) a).compareTo(b);
+        }
+        return comparator().compare(a, b);
+    }
+
+    final int ceilingPos(E key) {
+        int pos = search(key);
+        return pos >= 0 ? pos : -pos - 1;
+    }
+
+    final int higherPos(E key) {
+        int pos = search(key);
+        return pos >= 0 ? pos + 1 : -pos - 1;
+    }
+
+    final int floorPos(E key) {
+        int pos = search(key);
+        return pos >= 0 ? pos : -pos - 2;
+    }
+
+    final int lowerPos(E key) {
+        int pos = search(key);
+        return pos >= 0 ? pos - 1 : -pos - 2;
+    }
+
+    private E getOrNull(int index) {
+        return 0 <= index && index < size() ? get(index) : null;
+    }
+
+    @Override
+    public E lower(E e) {
+        return getOrNull(lowerPos(e));
+    }
+
+    @Override
+    public E floor(E e) {
+        return getOrNull(floorPos(e));
+    }
+
+    @Override
+    public E ceiling(E e) {
+        return getOrNull(ceilingPos(e));
+    }
+
+    @Override
+    public E higher(E e) {
+        return getOrNull(higherPos(e));
+    }
+
+    @Override
+    public E first() {
+        if (isEmpty()) {
+            throw new NoSuchElementException();
+        }
+        return get(0);
+    }
+
+    @Override
+    public E last() {
+        if (isEmpty()) {
+            throw new NoSuchElementException();
+        }
+        return get(size() - 1);
+    }
+
+    @Override
+    public E pollFirst() {
+        throw new UnsupportedOperationException("Set is immutable");
+    }
+
+    @Override
+    public E pollLast() {
+        throw new UnsupportedOperationException("Set is immutable");
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public boolean contains(Object o) {
+        return search((E) o) >= 0;
+    }
+
+    @Override
+    public Iterator<E> iterator() {
+        return new Iterator<>() {
+            private int next = 0;
+
+            @Override
+            public boolean hasNext() {
+                return next < size();
+            }
+
+            @Override
+            public E next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return get(next++);
+            }
+        };
+    }
+
+    @Override
+    public Iterator<E> descendingIterator() {
+        return new Iterator<>() {
+            private int next = size() - 1;
+
+            @Override
+            public boolean hasNext() {
+                return next >= 0;
+            }
+
+            @Override
+            public E next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return get(next--);
+            }
+        };
+    }
+
+    @Override
+    public NavigableSet<E> descendingSet() {
+        return new DescendingSet<>(this);
+    }
+
+    @Override
+    public NavigableSet<E> subSet(E fromElement, boolean fromInclusive, E toElement, boolean toInclusive) {
+        if (compare(fromElement, toElement) > 0) {
+            throw new IllegalArgumentException("fromElement=" + fromElement + " should be less or equal than toElement=" + toElement);
+        }
+        int l = fromInclusive ? ceilingPos(fromElement) : higherPos(fromElement);
+        int r = toInclusive ? higherPos(toElement) : ceilingPos(toElement);
+        return range(l, Math.max(l, r));
+    }
+
+    @Override
+    public NavigableSet<E> headSet(E toElement, boolean inclusive) {
+        return range(0, inclusive ? higherPos(toElement) : ceilingPos(toElement));
+    }
+
+    @Override
+    public NavigableSet<E> tailSet(E fromElement, boolean inclusive) {
+        return range(inclusive ? ceilingPos(fromElement) : higherPos(fromElement), size());
+    }
+
+    @Override
+    public SortedSet<E> subSet(E fromElement, E toElement) {
+        return subSet(fromElement, true, toElement, false);
+    }
+
+    @Override
+    public SortedSet<E> headSet(E toElement) {
+        return headSet(toElement, false);
+    }
+
+    @Override
+    public SortedSet<E> tailSet(E fromElement) {
+        return tailSet(fromElement, true);
+    }
+}
@@ -2,10 +2,13 @@ package info.kgeorgiy.ja.Zaitsev.arrayset;
 
 import java.util.*;
 
-public class ArraySet<E> extends AbstractSet<E> implements SortedSet<E> {
+public class ArraySet<E> extends AbstractArraySet<E> {
 
     private final List<E> arr;
     private final Comparator<? super E> cmp;
+    // optional lookup index over a root set, this set starts at offset in it
+    private final EytzingerIndex<E> index;
+    private final int offset;
 
     public ArraySet() {
         this(Collections.emptyList(), null);
@@ -16,100 +19,228 @@ public class ArraySet<E> extends AbstractSet<E> implements SortedSet<E> {
     }
 
     public ArraySet(Collection<? extends E> collection, Comparator<? super E> comparator) {
-        TreeSet<E> temp = new TreeSet<>(comparator);
-        temp.addAll(collection);
-        arr = new ArrayList<>(temp);
         cmp = comparator;
+        arr = sortedDistinct(collection);
+        index = null;
+        offset = 0;
     }
 
-    @Override
-    public Iterator<E> iterator() {
-        return Collections.unmodifiableList(arr).iterator();
+    // view of already sorted distinct elements, shares them without copying
+    private ArraySet(Comparator<? super E> comparator, List<E> sorted, EytzingerIndex<E> index, int offset) {
+        arr = sorted;
+        cmp = comparator;
+        this.index = index;
+        this.offset = offset;
     }
 
-    @Override
-    public int size() {
-        return arr.size();
+    /**
+     * Returns set with the same elements that searches through a cache-friendly
+     * {@link EytzingerIndex} instead of binary search over the sorted list.
+     * Elements are shared, the index takes two extra references per element.
+     * Iteration order and views are unchanged, views reuse the index.
+     *
+     * @return indexed set.
+     */
+    @SuppressWarnings("unchecked")
+    public ArraySet<E> indexed() {
+        if (index != null) {
+            return this;
+        }
+        Comparator<? super E> order = cmp != null ? cmp : (Comparator<? super E>) Comparator.naturalOrder();
+        return new ArraySet<>(cmp, arr, new EytzingerIndex<>(arr, order), 0);
     }
 
-    @Override
-    public Comparator<? super E> comparator() {
-        return cmp;
+    // sorted input (e.g. SortedSet with the same comparator) is taken in one linear pass,
+    // otherwise elements are sorted in place. Equal elements keep the first one, as TreeSet does
+    @SuppressWarnings("unchecked")
+    private List<E> sortedDistinct(Collection<? extends E> collection) {
+        E[] elements = (E[]) collection.toArray();
+        if (elements.length == 0) {
+            return Collections.emptyList();
+        }
+        // fails on null or non-comparable elements like TreeSet
+        compare(elements[0], elements[0]);
+        if (collection instanceof SortedSet && Objects.equals(((SortedSet<?>) collection).comparator(), cmp)) {
+            return Arrays.asList(elements);
+        }
+        if (!isSorted(elements)) {
+            Arrays.sort(elements, cmp);
+        }
+        int size = 1;
+        for (int i = 1; i < elements.length; i++) {
+            if (compare(elements[size - 1], elements[i]) != 0) {
+                elements[size++] = elements[i];
+            }
+        }
+        return Arrays.asList(size == elements.length ? elements : Arrays.copyOf(elements, size));
+    }
+
+    private boolean isSorted(E[] elements) {
+        for (int i = 1; i < elements.length; i++) {
+            if (compare(elements[i - 1], elements[i]) > 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns set of elements belonging to this or {@code other} set, in linear time.
+     * Of equal elements the one from this set is kept.
+     *
+     * @param other set with the same comparator.
+     * @return union of the sets.
+     * @throws IllegalArgumentException if comparators differ.
+     */
+    public ArraySet<E> union(ArraySet<? extends E> other) {
+        return merge(other, true, true, true);
+    }
+
+    /**
+     * Returns set of elements of this set that belong to {@code other} set.
+     * Takes {@code O(m log(n / m))} comparisons for sets of sizes {@code m <= n}.
+     *
+     * @param other set with the same comparator.
+     * @return intersection of the sets.
+     * @throws IllegalArgumentException if comparators differ.
+     */
+    public ArraySet<E> intersection(ArraySet<? extends E> other) {
+        return merge(other, false, false, true);
     }
 
+    /**
+     * Returns set of elements of this set that don't belong to {@code other} set.
+     *
+     * @param other set with the same comparator.
+     * @return difference of the sets.
+     * @throws IllegalArgumentException if comparators differ.
+     */
+    public ArraySet<E> difference(ArraySet<? extends E> other) {
+        return merge(other, true, false, false);
+    }
+
+    /**
+     * Checks inclusion by galloping merge if {@code c} is an {@link ArraySet} with the same comparator.
+     */
     @Override
-    public SortedSet<E> subSet(E fromElement, E toElement) {
-        return subSet(fromElement, toElement, false);
+    public boolean containsAll(Collection<?> c) {
+        if (!(c instanceof ArraySet) || !Objects.equals(cmp, ((ArraySet<?>) c).comparator())) {
+            return super.containsAll(c);
+        }
+        @SuppressWarnings("unchecked")
+        List<? extends E> other = ((ArraySet<? extends E>) c).arr;
+        int j = 0;
+        for (E e : other) {
+            j = gallop(arr, j, e);
+            if (j == arr.size() || compare(arr.get(j), e) != 0) {
+                return false;
+            }
+        }
+        return true;
     }
 
+    // iterates the smaller set galloping over the larger one, so runs of the larger set
+    // are skipped in O(log run) comparisons
     @SuppressWarnings("unchecked")
-    private int compare(E a, E b) {
-        if (comparator() == null) {
-            return ((Comparable<? super E>) a).compareTo(b);
+    private ArraySet<E> merge(ArraySet<? extends E> other, boolean keepThis, boolean keepOther, boolean keepBoth) {
+        if (!Objects.equals(cmp, other.comparator())) {
+            throw new IllegalArgumentException("Sets should have the same comparator");
+        }
+        boolean thisSmall = size() <= other.size();
+        List<? extends E> small = thisSmall ? arr : other.arr;
+        List<? extends E> large = thisSmall ? other.arr : arr;
+        boolean keepSmall = thisSmall ? keepThis : keepOther;
+        boolean keepLarge = thisSmall ? keepOther : keepThis;
+
+        Object[] result = new Object[keepThis || keepOther
+                ? (keepThis ? size() : 0) + (keepOther ? other.size() : 0)
+                : small.size()];
+        int n = 0;
+        int j = 0;
+        for (E e : small) {
+            int p = gallop(large, j, e);
+            if (keepLarge) {
+                for (; j < p; j++) {
+                    result[n++] = large.get(j);
+                }
+            }
+            if (p < large.size() && compare(large.get(p), e) == 0) {
+                if (keepBoth) {
+                    result[n++] = thisSmall ? e : large.get(p);
+                }
+                j = p + 1;
+            } else {
+                if (keepSmall) {
+                    result[n++] = e;
+                }
+                j = p;
+            }
+        }
+        if (keepLarge) {
+            for (; j < large.size(); j++) {
+                result[n++] = large.get(j);
+            }
         }
-        return comparator().compare(a, b);
+        return new ArraySet<>(cmp, (List<E>) Arrays.asList(n == result.length ? result : Arrays.copyOf(result, n)), null, 0);
     }
 
-    @Override
-    public SortedSet<E> headSet(E toElement) {
-        if (isEmpty() || compare(toElement, first()) < 0) {
-            return new ArraySet<>(Collections.emptyList(), cmp);
+    // index of the first element of list at or after from that is not less than key
+    private int gallop(List<? extends E> list, int from, E key) {
+        int lo = from;
+        int hi = from;
+        long step = 1;
+        while (hi < list.size() && compare(list.get(hi), key) < 0) {
+            lo = hi + 1;
+            hi = (int) Math.min(list.size(), from + step);
+            step *= 2;
+        }
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (compare(list.get(mid), key) < 0) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
         }
-        return subSet(first(), toElement, false);
+        return lo;
     }
 
     @Override
-    public SortedSet<E> tailSet(E fromElement) {
-        if (isEmpty() || compare(last(), fromElement) < 0) {
-            return new ArraySet<>(Collections.emptyList(), cmp);
-        }
-        return subSet(fromElement, last(), true);
+    ArraySet<E> range(int from, int to) {
+        return new ArraySet<>(cmp, arr.subList(from, to), index, offset + from);
     }
 
     @Override
-    public E first() {
-        if (arr.isEmpty()) {
-            throw new NoSuchElementException();
-        }
-        return arr.get(0);
+    E get(int index) {
+        return arr.get(index);
     }
 
     @Override
-    public E last() {
-        if (this.isEmpty()) {
-            throw new NoSuchElementException();
+    int search(E key) {
+        if (index == null) {
+            return Collections.binarySearch(arr, key, cmp);
+        }
+        int pos = index.search(key);
+        int rel = (pos >= 0 ? pos : -pos - 1) - offset;
+        if (pos >= 0 && 0 <= rel && rel < size()) {
+            return rel;
         }
-        return arr.get(arr.size() - 1);
+        return -Math.max(0, Math.min(rel, size())) - 1;
     }
 
-    private int findElement(E elem, int foundShift, int notFoundShift) {
-        int pos = Collections.binarySearch(arr, elem, cmp);
-        if (pos < 0) {
-            pos = -pos - 1 + foundShift;
-        } else {
-            pos = pos + notFoundShift;
-        }
-        return pos;
+    @Override
+    public Iterator<E> iterator() {
+        return Collections.unmodifiableList(arr).iterator();
     }
 
     @Override
-    @SuppressWarnings("unchecked")
-    public boolean contains(Object o) {
-        return Collections.binarySearch(arr, (E) o, cmp) >= 0;
+    public int size() {
+        return arr.size();
     }
 
-    private SortedSet<E> subSet(E fromElement, E toElement, boolean toInclusive) {
-        if (compare(fromElement, toElement) > 0) {
-            throw new IllegalArgumentException("fromElement=" + fromElement + " should be less or equal than toElement=" + toElement);
-        }
-//        int l = findElement(fromElement, fromInclusive ? 0 : 1, fromInclusive ? 0 : 1);
-        int l = findElement(fromElement, 0, 0);
-        int r = findElement(toElement, toInclusive ? 1 : 0, toInclusive ? 1 : 0);
-        if (0 <= l && l <= r && r <= size()) {
-            return new ArraySet<>(arr.subList(l, r), cmp);
-        } else {
-            return new ArraySet<>(Collections.emptyList(), cmp);
-        }
+    @Override
+    public Comparator<? super E> comparator() {
+        return cmp;
     }
 
 }
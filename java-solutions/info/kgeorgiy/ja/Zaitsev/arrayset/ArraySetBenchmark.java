@@ -0,0 +1,85 @@
+package info.kgeorgiy.ja.Zaitsev.arrayset;
+
+import java.util.AbstractList;
+import java.util.Random;
+
+/**
+ * Lookup benchmark of {@link ArraySet} with binary search and with {@link ArraySet#indexed() Eytzinger index}.
+ * <p>
+ * Set of {@code n} even integers is queried with random even keys (hits) and odd keys (misses).
+ * Keys are boxed in advance, so only {@link ArraySet#contains} is measured.
+ * The number of found keys is summed and printed as the last line.
+ *
+ * @author Zaitsev Ilya
+ */
+public class ArraySetBenchmark {
+    private static final int QUERIES = 1 << 22;
+    private static final int WARMUP = 3;
+    private static final int ITERATIONS = 5;
+
+    // sum of lookup results, printed so that lookups are not eliminated
+    private static long checksum = 0;
+
+    private static double measure(ArraySet<Integer> set, Integer[] keys) {
+        double best = Double.MAX_VALUE;
+        int found = 0;
+        for (int i = 0; i < WARMUP + ITERATIONS; i++) {
+            long start = System.nanoTime();
+            for (Integer key : keys) {
+                if (set.contains(key)) {
+                    found++;
+                }
+            }
+            if (i >= WARMUP) {
+                best = Math.min(best, (double) (System.nanoTime() - start) / keys.length);
+            }
+        }
+        checksum += found;
+        return best;
+    }
+
+    /**
+     * Main function. Prints nanoseconds per lookup for every set size.
+     *
+     * @param args set sizes, {@code 1000 1000000 10000000} by default.
+     */
+    public static void main(String[] args) {
+        int[] sizes = {1_000, 1_000_000, 10_000_000};
+        if (args.length > 0) {
+            sizes = new int[args.length];
+            try {
+                for (int i = 0; i < args.length; i++) {
+                    sizes[i] = Integer.parseInt(args[i]);
+                }
+            } catch (NumberFormatException e) {
+                System.err.println("Incorrect arguments. Usage: [<set size>...]");
+                return;
+            }
+        }
+        Random random = new Random(8682522807148012L);
+        System.out.printf("%12s %14s %14s %14s %14s%n", "size", "binary hit", "binary miss", "indexed hit", "indexed miss");
+        for (int n : sizes) {
+            ArraySet<Integer> set = new ArraySet<>(new AbstractList<>() {
+                @Override
+                public Integer get(int index) {
+                    return 2 * index;
+                }
+
+                @Override
+                public int size() {
+                    return n;
+                }
+            });
+            ArraySet<Integer> indexed = set.indexed();
+            Integer[] hits = new Integer[QUERIES];
+            Integer[] misses = new Integer[QUERIES];
+            for (int i = 0; i < QUERIES; i++) {
+                hits[i] = 2 * random.nextInt(n);
+                misses[i] = 2 * random.nextInt(n) + 1;
+            }
+            System.out.printf("%12d %11.1f ns %11.1f ns %11.1f ns %11.1f ns%n", n,
+                    measure(set, hits), measure(set, misses), measure(indexed, hits), measure(indexed, misses));
+        }
+        System.out.println("checksum: " + checksum);
+    }
+}
@@ -0,0 +1,121 @@
+package info.kgeorgiy.ja.Zaitsev.arrayset;
+
+import java.util.*;
+
+/**
+ * O(1) reverse-order view of a {@link NavigableSet}. All methods delegate to the base set
+ * with swapped directions, so no elements are copied.
+ *
+ * @param <E> element type.
+ * @author Zaitsev Ilya
+ */
+class DescendingSet<E> extends AbstractSet<E> implements NavigableSet<E> {
+    private final NavigableSet<E> base;
+
+    /**
+     * Creates reverse-order view of {@code base}.
+     */
+    DescendingSet(NavigableSet<E> base) {
+        this.base = base;
+    }
+
+    @Override
+    public E lower(E e) {
+        return base.higher(e);
+    }
+
+    @Override
+    public E floor(E e) {
+        return base.ceiling(e);
+    }
+
+    @Override
+    public E ceiling(E e) {
+        return base.floor(e);
+    }
+
+    @Override
+    public E higher(E e) {
+        return base.lower(e);
+    }
+
+    @Override
+    public E pollFirst() {
+        return base.pollLast();
+    }
+
+    @Override
+    public E pollLast() {
+        return base.pollFirst();
+    }
+
+    @Override
+    public Iterator<E> iterator() {
+        return base.descendingIterator();
+    }
+
+    @Override
+    public NavigableSet<E> descendingSet() {
+        return base;
+    }
+
+    @Override
+    public Iterator<E> descendingIterator() {
+        return base.iterator();
+    }
+
+    @Override
+    public NavigableSet<E> subSet(E fromElement, boolean fromInclusive, E toElement, boolean toInclusive) {
+        return base.subSet(toElement, toInclusive, fromElement, fromInclusive).descendingSet();
+    }
+
+    @Override
+    public NavigableSet<E> headSet(E toElement, boolean inclusive) {
+        return base.tailSet(toElement, inclusive).descendingSet();
+    }
+
+    @Override
+    public NavigableSet<E> tailSet(E fromElement, boolean inclusive) {
+        return base.headSet(fromElement, inclusive).descendingSet();
+    }
+
+    @Override
+    public Comparator<? super E> comparator() {
+        return Collections.reverseOrder(base.comparator());
+    }
+
+    @Override
+    public SortedSet<E> subSet(E fromElement, E toElement) {
+        return subSet(fromElement, true, toElement, false);
+    }
+
+    @Override
+    public SortedSet<E> headSet(E toElement) {
+        return headSet(toElement, false);
+    }
+
+    @Override
+    public SortedSet<E> tailSet(E fromElement) {
+        return tailSet(fromElement, true);
+    }
+
+    @Override
+    public E first() {
+        return base.last();
+    }
+
+    @Override
+    public E last() {
+        return base.first();
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        return base.contains(o);
+    }
+
+    @Override
+    public int size() {
+        return base.size();
+    }
+}
@@ -0,0 +1,65 @@
+package info.kgeorgiy.ja.Zaitsev.arrayset;
+
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Search index storing sorted elements in Eytzinger (breadth-first) order.
+ * <p>
+ * Node {@code k} has children {@code 2k} and {@code 2k + 1}, so the first levels of the tree
+ * share a few cache lines and each step of the search moves forward in memory.
+ * The descent has no data-dependent branches: the comparison result selects the child index.
+ * Sorted position of each node is stored alongside to answer rank queries.
+ *
+ * @param <E> element type.
+ * @author Zaitsev Ilya
+ */
+class EytzingerIndex<E> {
+    private final Object[] tree;
+    private final int[] ranks;
+    private final Comparator<? super E> cmp;
+
+    /**
+     * Builds index of {@code sorted} distinct elements in O(n).
+     *
+     * @param sorted     elements in ascending order.
+     * @param comparator element order.
+     */
+    EytzingerIndex(List<E> sorted, Comparator<? super E> comparator) {
+        tree = new Object[sorted.size() + 1];
+        ranks = new int[sorted.size() + 1];
+        cmp = comparator;
+        fill(sorted, 1, 0);
+    }
+
+    private int fill(List<E> sorted, int k, int rank) {
+        if (k < tree.length) {
+            rank = fill(sorted, 2 * k, rank);
+            tree[k] = sorted.get(rank);
+            ranks[k] = rank++;
+            rank = fill(sorted, 2 * k + 1, rank);
+        }
+        return rank;
+    }
+
+    /**
+     * Searches for {@code key} as {@link java.util.Collections#binarySearch(List, Object, Comparator)} does.
+     *
+     * @param key element to look for.
+     * @return sorted index of {@code key}, or {@code -(insertion point) - 1}.
+     */
+    @SuppressWarnings("unchecked")
+    int search(E key) {
+        int n = tree.length - 1;
+        int k = 1;
+        while (k <= n) {
+            k = 2 * k + (cmp.compare((E) tree[k], key) >>> 31);
+        }
+        // drop trailing right turns and the last left turn, leaving the first element >= key
+        k >>>= Integer.numberOfTrailingZeros(~k) + 1;
+        if (k == 0) {
+            return -n - 1;
+        }
+        return cmp.compare((E) tree[k], key) == 0 ? ranks[k] : -ranks[k] - 1;
+    }
+}
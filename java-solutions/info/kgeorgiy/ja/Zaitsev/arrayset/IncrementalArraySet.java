@@ -0,0 +1,118 @@
+package info.kgeorgiy.ja.Zaitsev.arrayset;
+
+import java.util.*;
+
+/**
+ * Persistent sorted set that accepts insert batches without rebuilding the whole array.
+ * <p>
+ * Elements are kept in two disjoint {@link ArraySet}s: the large main one and a small delta.
+ * New elements go to the delta, which is merged into the main set once it grows past
+ * {@code sqrt(size)} elements, so an insert costs {@code O(sqrt(n))} amortized.
+ * Lookups are two binary searches, iteration merges both parts in sorted order.
+ * <p>
+ * Instances are immutable: {@link #with} returns a new set sharing arrays with this one,
+ * so readers may use a published instance while a writer prepares the next one.
+ *
+ * @param <E> element type.
+ * @author Zaitsev Ilya
+ */
+public class IncrementalArraySet<E> extends AbstractSet<E> {
+    private static final int MIN_DELTA = 32;
+
+    private final ArraySet<E> main;
+    private final ArraySet<E> delta;
+
+    /**
+     * Creates set of {@code collection} elements ordered by {@code comparator}.
+     *
+     * @param collection initial elements.
+     * @param comparator element order, {@code null} for natural order.
+     */
+    public IncrementalArraySet(Collection<? extends E> collection, Comparator<? super E> comparator) {
+        this(new ArraySet<>(collection, comparator), new ArraySet<>(Collections.emptyList(), comparator));
+    }
+
+    /**
+     * Creates set of {@code collection} elements in natural order.
+     *
+     * @param collection initial elements.
+     */
+    public IncrementalArraySet(Collection<? extends E> collection) {
+        this(collection, null);
+    }
+
+    private IncrementalArraySet(ArraySet<E> main, ArraySet<E> delta) {
+        this.main = main;
+        this.delta = delta;
+    }
+
+    /**
+     * Returns set with {@code batch} elements added. Elements already present are kept.
+     *
+     * @param batch elements to add.
+     * @return new set, this set is unchanged.
+     */
+    public IncrementalArraySet<E> with(Collection<? extends E> batch) {
+        ArraySet<E> added = new ArraySet<E>(batch, comparator()).difference(main);
+        if (added.isEmpty()) {
+            return this;
+        }
+        ArraySet<E> merged = delta.union(added);
+        if (merged.size() > Math.max(MIN_DELTA, (int) Math.sqrt(main.size()))) {
+            return new IncrementalArraySet<>(main.union(merged), new ArraySet<>(Collections.emptyList(), comparator()));
+        }
+        return new IncrementalArraySet<>(main, merged);
+    }
+
+    /**
+     * Returns all elements as a single {@link ArraySet}, merging the delta if needed.
+     *
+     * @return navigable set of the same elements.
+     */
+    public ArraySet<E> toArraySet() {
+        return delta.isEmpty() ? main : main.union(delta);
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        return main.contains(o) || !delta.isEmpty() && delta.contains(o);
+    }
+
+    @Override
+    public Iterator<E> iterator() {
+        return new Iterator<>() {
+            private int i = 0;
+            private int j = 0;
+
+            @Override
+            public boolean hasNext() {
+                return i < main.size() || j < delta.size();
+            }
+
+            @Override
+            public E next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                if (j == delta.size() || i < main.size() && main.compare(main.get(i), delta.get(j)) < 0) {
+                    return main.get(i++);
+                }
+                return delta.get(j++);
+            }
+        };
+    }
+
+    @Override
+    public int size() {
+        return main.size() + delta.size();
+    }
+
+    /**
+     * Returns comparator of the set.
+     *
+     * @return element order, {@code null} for natural order.
+     */
+    public Comparator<? super E> comparator() {
+        return main.comparator();
+    }
+}
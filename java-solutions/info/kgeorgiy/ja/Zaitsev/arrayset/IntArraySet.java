@@ -0,0 +1,132 @@
+package info.kgeorgiy.ja.Zaitsev.arrayset;
+
+import java.util.*;
+
+/**
+ * Immutable sorted set of {@code int} values stored in an {@code int[]} in natural order.
+ * <p>
+ * Implements {@link NavigableSet} over boxed values and also provides primitive
+ * {@link #contains(int)}, {@link #floorIndex(int)}, {@link #ceilingIndex(int)} and {@link #getInt(int)}
+ * that don't allocate. Range views share the backing array.
+ *
+ * @author Zaitsev Ilya
+ */
+public class IntArraySet extends AbstractArraySet<Integer> {
+    private final int[] elements;
+    private final int from;
+    private final int to;
+
+    /**
+     * Creates set of given {@code values}. Array is copied, duplicates are removed.
+     *
+     * @param values elements of the set in any order.
+     */
+    public IntArraySet(int... values) {
+        int[] sorted = values.clone();
+        Arrays.sort(sorted);
+        int size = 0;
+        for (int i = 0; i < sorted.length; i++) {
+            if (i == 0 || sorted[i] != sorted[size - 1]) {
+                sorted[size++] = sorted[i];
+            }
+        }
+        this.elements = size == sorted.length ? sorted : Arrays.copyOf(sorted, size);
+        this.from = 0;
+        this.to = size;
+    }
+
+    private IntArraySet(int[] elements, int from, int to) {
+        this.elements = elements;
+        this.from = from;
+        this.to = to;
+    }
+
+    private int searchInt(int key) {
+        int pos = Arrays.binarySearch(elements, from, to, key);
+        return pos >= 0 ? pos - from : pos + from;
+    }
+
+    /**
+     * Returns whether the set contains {@code value}.
+     *
+     * @param value value to look for.
+     * @return {@code true} if value belongs to the set.
+     */
+    public boolean contains(int value) {
+        return searchInt(value) >= 0;
+    }
+
+    /**
+     * Returns index of the greatest element less than or equal to {@code value}.
+     *
+     * @param value value to look for.
+     * @return index in ascending order, or {@code -1} if there is no such element.
+     */
+    public int floorIndex(int value) {
+        int pos = searchInt(value);
+        return pos >= 0 ? pos : -pos - 2;
+    }
+
+    /**
+     * Returns index of the least element greater than or equal to {@code value}.
+     *
+     * @param value value to look for.
+     * @return index in ascending order, or {@code -1} if there is no such element.
+     */
+    public int ceilingIndex(int value) {
+        int pos = searchInt(value);
+        int index = pos >= 0 ? pos : -pos - 1;
+        return index < size() ? index : -1;
+    }
+
+    /**
+     * Returns element at {@code index} in ascending order.
+     *
+     * @param index element index.
+     * @return element value.
+     * @throws IndexOutOfBoundsException if index is out of {@code [0, size())}.
+     */
+    public int getInt(int index) {
+        Objects.checkIndex(index, size());
+        return elements[from + index];
+    }
+
+    @Override
+    Integer get(int index) {
+        return getInt(index);
+    }
+
+    @Override
+    int search(Integer key) {
+        return searchInt(key);
+    }
+
+    @Override
+    IntArraySet range(int from, int to) {
+        return new IntArraySet(elements, this.from + from, this.from + to);
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        return o instanceof Integer && contains((int) (Integer) o);
+    }
+
+    @Override
+    public int size() {
+        return to - from;
+    }
+
+    @Override
+    public Comparator<? super Integer> comparator() {
+        return null;
+    }
+
+    @Override
+    public int hashCode() {
+        int hash = 0;
+        for (int i = from; i < to; i++) {
+            hash += elements[i];
+        }
+        return hash;
+    }
+}
@@ -0,0 +1,132 @@
+package info.kgeorgiy.ja.Zaitsev.arrayset;
+
+import java.util.*;
+
+/**
+ * Immutable sorted set of {@code long} values stored in a {@code long[]} in natural order.
+ * <p>
+ * Implements {@link NavigableSet} over boxed values and also provides primitive
+ * {@link #contains(long)}, {@link #floorIndex(long)}, {@link #ceilingIndex(long)} and {@link #getLong(int)}
+ * that don't allocate. Range views share the backing array.
+ *
+ * @author Zaitsev Ilya
+ */
+public class LongArraySet extends AbstractArraySet<Long> {
+    private final long[] elements;
+    private final int from;
+    private final int to;
+
+    /**
+     * Creates set of given {@code values}. Array is copied, duplicates are removed.
+     *
+     * @param values elements of the set in any order.
+     */
+    public LongArraySet(long... values) {
+        long[] sorted = values.clone();
+        Arrays.sort(sorted);
+        int size = 0;
+        for (int i = 0; i < sorted.length; i++) {
+            if (i == 0 || sorted[i] != sorted[size - 1]) {
+                sorted[size++] = sorted[i];
+            }
+        }
+        this.elements = size == sorted.length ? sorted : Arrays.copyOf(sorted, size);
+        this.from = 0;
+        this.to = size;
+    }
+
+    private LongArraySet(long[] elements, int from, int to) {
+        this.elements = elements;
+        this.from = from;
+        this.to = to;
+    }
+
+    private int searchLong(long key) {
+        int pos = Arrays.binarySearch(elements, from, to, key);
+        return pos >= 0 ? pos - from : pos + from;
+    }
+
+    /**
+     * Returns whether the set contains {@code value}.
+     *
+     * @param value value to look for.
+     * @return {@code true} if value belongs to the set.
+     */
+    public boolean contains(long value) {
+        return searchLong(value) >= 0;
+    }
+
+    /**
+     * Returns index of the greatest element less than or equal to {@code value}.
+     *
+     * @param value value to look for.
+     * @return index in ascending order, or {@code -1} if there is no such element.
+     */
+    public int floorIndex(long value) {
+        int pos = searchLong(value);
+        return pos >= 0 ? pos : -pos - 2;
+    }
+
+    /**
+     * Returns index of the least element greater than or equal to {@code value}.
+     *
+     * @param value value to look for.
+     * @return index in ascending order, or {@code -1} if there is no such element.
+     */
+    public int ceilingIndex(long value) {
+        int pos = searchLong(value);
+        int index = pos >= 0 ? pos : -pos - 1;
+        return index < size() ? index : -1;
+    }
+
+    /**
+     * Returns element at {@code index} in ascending order.
+     *
+     * @param index element index.
+     * @return element value.
+     * @throws IndexOutOfBoundsException if index is out of {@code [0, size())}.
+     */
+    public long getLong(int index) {
+        Objects.checkIndex(index, size());
+        return elements[from + index];
+    }
+
+    @Override
+    Long get(int index) {
+        return getLong(index);
+    }
+
+    @Override
+    int search(Long key) {
+        return searchLong(key);
+    }
+
+    @Override
+    LongArraySet range(int from, int to) {
+        return new LongArraySet(elements, this.from + from, this.from + to);
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        return o instanceof Long && contains((long) (Long) o);
+    }
+
+    @Override
+    public int size() {
+        return to - from;
+    }
+
+    @Override
+    public Comparator<? super Long> comparator() {
+        return null;
+    }
+
+    @Override
+    public int hashCode() {
+        int hash = 0;
+        for (int i = from; i < to; i++) {
+            hash += Long.hashCode(elements[i]);
+        }
+        return hash;
+    }
+}
@@ -0,0 +1,133 @@
+package info.kgeorgiy.ja.Zaitsev.concurrent;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ThreadFactory;
+import java.util.function.Predicate;
+
+/**
+ * Benchmark of {@link IterativeParallelism} and {@link ParallelMapperImpl} thread backends
+ * on a CPU-bound and a blocking workload.
+ * <p>
+ * Backend {@code threads} starts new platform threads on every call, {@code mapper} reuses
+ * a fixed set of platform workers, {@code mapper-wide} runs one platform worker per
+ * {@link #WIDE} elements, and {@code virtual} rows use virtual threads when the runtime provides them.
+ * <p>
+ * Then a small high-priority {@code map} call is made while a bulk call occupies the only worker
+ * of a mapper. It should wait for about one turn of the bulk call, an error is printed otherwise.
+ *
+ * @author Zaitsev Ilya
+ */
+public class ConcurrentBenchmark {
+    private static final int WARMUP = 2;
+    private static final int ITERATIONS = 5;
+    private static final int ELEMENTS = 2_000;
+    private static final int WIDE = 2;
+    private static final int THREADS = Runtime.getRuntime().availableProcessors();
+    private static final int BULK = 500;
+    private static final double FAIR_LATENCY_MS = 20;
+
+    private interface Backend {
+        void run(Predicate<Integer> workload, List<Integer> values) throws InterruptedException;
+    }
+
+    private static boolean cpu(Integer value) {
+        double sum = value;
+        for (int i = 0; i < 20_000; i++) {
+            sum += Math.sqrt(sum + i);
+        }
+        return sum != 0;
+    }
+
+    private static boolean blocking(Integer value) {
+        try {
+            Thread.sleep(1);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return value >= 0;
+    }
+
+    private static double measure(Backend backend, Predicate<Integer> workload, List<Integer> values) throws InterruptedException {
+        double best = Double.MAX_VALUE;
+        for (int i = 0; i < WARMUP + ITERATIONS; i++) {
+            long start = System.nanoTime();
+            backend.run(workload, values);
+            if (i >= WARMUP) {
+                best = Math.min(best, (System.nanoTime() - start) / 1e6);
+            }
+        }
+        return best;
+    }
+
+    private static void print(String name, Backend backend, List<Integer> values) throws InterruptedException {
+        System.out.printf("%-14s %10.1f %10.1f%n", name,
+                measure(backend, ConcurrentBenchmark::cpu, values),
+                measure(backend, ConcurrentBenchmark::blocking, values));
+    }
+
+    // Thread.ofVirtual().factory() when running on Java 21+, null otherwise
+    private static ThreadFactory virtualThreadFactory() {
+        try {
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            return (ThreadFactory) Class.forName("java.lang.Thread$Builder").getMethod("factory").invoke(builder);
+        } catch (ReflectiveOperationException e) {
+            return null;
+        }
+    }
+
+    private static void mapper(String name, int threads, ThreadFactory factory, List<Integer> values) throws InterruptedException {
+        try (ParallelMapperImpl mapper = new ParallelMapperImpl(threads, factory)) {
+            print(name, (workload, list) -> mapper.map(workload::test, list), values);
+        }
+    }
+
+    private static void fairness() throws InterruptedException {
+        try (ParallelMapperImpl mapper = new ParallelMapperImpl(1)) {
+            // a cheap call first, its cost must not affect chunks of the bulk call
+            mapper.map(value -> value + 1, Collections.nCopies(100_000, 1));
+            Thread bulk = new Thread(() -> {
+                try {
+                    mapper.map(ConcurrentBenchmark::blocking, Collections.nCopies(BULK, 1));
+                } catch (InterruptedException ignored) {
+                }
+            });
+            bulk.start();
+            Thread.sleep(50);
+            long start = System.nanoTime();
+            mapper.map(value -> value, Collections.nCopies(10, 1), 4);
+            double latency = (System.nanoTime() - start) / 1e6;
+            bulk.join();
+            System.out.printf("small call during bulk call: %.1f ms%n", latency);
+            if (latency > FAIR_LATENCY_MS) {
+                System.err.printf("Small call waited longer than %.0f ms%n", FAIR_LATENCY_MS);
+            }
+        }
+    }
+
+    /**
+     * Main function. Prints milliseconds per call of every backend on every workload
+     * and latency of a small call during a bulk one.
+     *
+     * @param args ignored.
+     */
+    public static void main(String[] args) throws InterruptedException {
+        List<Integer> values = new ArrayList<>(Collections.nCopies(ELEMENTS, 1));
+        int wide = ELEMENTS / WIDE;
+        System.out.printf("%-14s %10s %10s%n", "ms", "cpu", "blocking");
+        print("threads", (workload, list) -> new IterativeParallelism().all(THREADS, list, workload), values);
+        print("threads-wide", (workload, list) -> new IterativeParallelism().all(wide, list, workload), values);
+        mapper("mapper", THREADS, Thread::new, values);
+        mapper("mapper-wide", wide, Thread::new, values);
+
+        ThreadFactory virtual = virtualThreadFactory();
+        if (virtual == null) {
+            System.out.println("Virtual threads are not available in Java " + Runtime.version().feature());
+        } else {
+            print("virtual", (workload, list) -> IterativeParallelism.withThreadFactory(virtual).all(wide, list, workload), values);
+            mapper("mapper-virtual", wide, virtual, values);
+        }
+        fairness();
+    }
+}
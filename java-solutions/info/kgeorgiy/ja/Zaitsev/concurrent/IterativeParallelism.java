@@ -7,6 +7,9 @@ import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.List;
 import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.function.Function;
 import java.util.function.Predicate;
 
@@ -18,19 +21,36 @@ import java.util.function.Predicate;
  */
 public class IterativeParallelism implements ScalarIP {
     private final ParallelMapper parallelMapper;
+    private final ThreadFactory threadFactory;
 
     /**
      * Creates {@link IterativeParallelism} without mapper.
      */
     public IterativeParallelism() {
-        parallelMapper = null;
+        this(null, Thread::new);
     }
 
     /**
      * Creates {@link IterativeParallelism} with given {@link ParallelMapper}.
      */
     public IterativeParallelism(ParallelMapper parallelMapper) {
+        this(parallelMapper, null);
+    }
+
+    private IterativeParallelism(ParallelMapper parallelMapper, ThreadFactory threadFactory) {
         this.parallelMapper = parallelMapper;
+        this.threadFactory = threadFactory;
+    }
+
+    /**
+     * Creates {@link IterativeParallelism} without mapper, that runs blocks on threads
+     * created by given {@code threadFactory}, e.g. {@code Thread.ofVirtual().factory()} on Java 21.
+     *
+     * @param threadFactory factory of block threads.
+     * @return new {@link IterativeParallelism}.
+     */
+    public static IterativeParallelism withThreadFactory(ThreadFactory threadFactory) {
+        return new IterativeParallelism(null, Objects.requireNonNull(threadFactory));
     }
 
     /**
@@ -78,7 +98,20 @@ public class IterativeParallelism implements ScalarIP {
      */
     @Override
     public <T> boolean all(int threads, List<? extends T> values, Predicate<? super T> predicate) throws InterruptedException {
-        return process(threads, values, ts -> ts.stream().allMatch(predicate)).stream().allMatch(t -> t);
+        // set by the first block that finds a counterexample, other blocks stop scanning
+        final AtomicBoolean stop = new AtomicBoolean();
+        return process(threads, values, ts -> {
+            for (T value : ts) {
+                if (stop.get()) {
+                    return true;
+                }
+                if (!predicate.test(value)) {
+                    stop.set(true);
+                    return false;
+                }
+            }
+            return true;
+        }).stream().allMatch(t -> t);
     }
 
     /**
@@ -109,7 +142,7 @@ public class IterativeParallelism implements ScalarIP {
         }
         for (int i = 0; i < threads; i++) {
             final int ti = i;
-            threadsArr[i] = new Thread(() -> results.set(ti, function.apply(lists.get(ti))));
+            threadsArr[i] = threadFactory.newThread(() -> results.set(ti, function.apply(lists.get(ti))));
             threadsArr[i].start();
         }
         for (int i = 0; i < threads; i++) {
@@ -3,93 +3,176 @@ package info.kgeorgiy.ja.Zaitsev.concurrent;
 import info.kgeorgiy.java.advanced.mapper.ParallelMapper;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 /**
  * Implementation of {@link ParallelMapper} interface.
+ * <p>
+ * Every {@code map} call is a group of chunk tasks. Workers serve groups in round-robin order,
+ * so concurrent calls share workers instead of waiting for each other in a single FIFO.
+ * A group with priority {@code p} gets {@code p} turns in a row.
  *
  * @author Zaitsev Ilya
  */
 public class ParallelMapperImpl implements ParallelMapper {
-    private final Queue<Runnable> queue;
+    private static final long MIN_CHUNK_NANOS = 50_000;
+    private static final long MAX_CHUNK_NANOS = 1_000_000;
+    private static final int CHUNKS_PER_THREAD = 4;
+
+    // groups with unclaimed elements, each group is queued at most once
+    private final Deque<TaskGroup> groups;
+    // one permit per queued group, idle workers wait for a permit
+    private final Semaphore available;
     private final List<Thread> threads;
 
-    private static class Counter {
-        private int counter = 0;
+    private static class TaskGroup {
+        private final ChunkTask task;
+        private final int size;
+        private final int priority;
+        // mapping time of one element measured on chunks of this group, negative until the first one is done
+        private volatile long elementNanos = -1;
+        // next element and turn to claim, changed only by the worker that took the group from the queue
+        private int next = 0;
+        private int turn = 0;
 
-        public int getCounter() {
-            return counter;
+        private TaskGroup(ChunkTask task, int size, int priority) {
+            this.task = task;
+            this.size = size;
+            this.priority = priority;
         }
+    }
 
-        public void increase() {
-            counter++;
-        }
+    private interface ChunkTask {
+        void run(TaskGroup group, int start, int end);
     }
 
     /**
      * Creates {@code threadsAmount} of worker threads that can be used for parallelization.
      */
     public ParallelMapperImpl(int threadsAmount) {
+        this(threadsAmount, Thread::new);
+    }
+
+    /**
+     * Creates {@code threadsAmount} of worker threads with given {@code factory}.
+     * Functions that block are better served by many cheap threads,
+     * e.g. {@code Thread.ofVirtual().factory()} on Java 21.
+     */
+    public ParallelMapperImpl(int threadsAmount, ThreadFactory factory) {
         if (threadsAmount < 1) {
             throw new IllegalArgumentException("Threads amount couldn't be less than 1");
         }
-        queue = new ArrayDeque<>();
+        groups = new ConcurrentLinkedDeque<>();
+        available = new Semaphore(0);
         final Runnable runnable = () -> {
-            while (!Thread.currentThread().isInterrupted()) {
-                final Runnable task;
-                synchronized (queue) {
-                    while (queue.isEmpty()) {
-                        try {
-                            queue.wait();
-                        } catch (InterruptedException ignored) {
-                            return;
-                        }
-                    }
-                    task = queue.poll();
+            try {
+                while (!Thread.currentThread().isInterrupted()) {
+                    available.acquire();
+                    runChunk();
                 }
-                task.run();
+            } catch (InterruptedException ignored) {
             }
         };
-        threads = Stream.generate(() -> new Thread(runnable)).limit(threadsAmount).collect(Collectors.toList());
+        threads = Stream.generate(() -> factory.newThread(runnable)).limit(threadsAmount).collect(Collectors.toList());
         threads.forEach(Thread::start);
     }
 
+    // claims a chunk of the first group and passes the turn before running it
+    private void runChunk() {
+        // a permit guarantees a queued group
+        TaskGroup group = groups.pollFirst();
+        int start = group.next;
+        int end = start + chunkSize(group);
+        group.next = end;
+        if (end < group.size) {
+            if (++group.turn % group.priority != 0) {
+                groups.addFirst(group);
+            } else {
+                groups.addLast(group);
+            }
+            available.release();
+        }
+        group.task.run(group, start, end);
+    }
+
     /**
-     * Maps function {@code f} over specified {@code args}.
-     * Mapping for each element performs in parallel.
+     * Maps function {@code f} over specified {@code args} with priority {@code 1}.
      *
      * @throws InterruptedException if calling thread was interrupted
      */
     @Override
     public <T, R> List<R> map(Function<? super T, ? extends R> f, List<? extends T> args) throws InterruptedException {
-        List<R> results = new ArrayList<>(Collections.nCopies(args.size(), null));
-        final Counter counter = new Counter();
-        for (int i = 0; i < args.size(); i++) {
-            final int ti = i;
-            synchronized (queue) {
-                queue.add(
-                        () -> {
-                            results.set(ti, f.apply(args.get(ti)));
-                            synchronized (counter) {
-                                counter.increase();
-                                if (counter.getCounter() == args.size()) {
-                                    counter.notify();
-                                }
-                            }
-                        }
-                );
+        return map(f, args, 1);
+    }
 
-                queue.notify();
-            }
+    /**
+     * Maps function {@code f} over specified {@code args}.
+     * Contiguous ranges of elements are mapped in parallel as single tasks, see {@link #chunkSize(int)}.
+     * While other calls are in progress, this call gets {@code priority} chunks per turn.
+     *
+     * @throws InterruptedException     if calling thread was interrupted
+     * @throws IllegalArgumentException if priority is less than 1
+     */
+    public <T, R> List<R> map(Function<? super T, ? extends R> f, List<? extends T> args, int priority) throws InterruptedException {
+        if (priority < 1) {
+            throw new IllegalArgumentException("Priority couldn't be less than 1");
         }
-        synchronized (counter) {
-            while (counter.getCounter() < args.size()) {
-                counter.wait();
-            }
+        final int size = args.size();
+        final Object[] results = new Object[size];
+        final AtomicInteger remaining = new AtomicInteger(size);
+        final CountDownLatch done = new CountDownLatch(size > 0 ? 1 : 0);
+        if (size > 0) {
+            groups.addLast(new TaskGroup((group, start, end) -> {
+                long begin = System.nanoTime();
+                for (int i = start; i < end; i++) {
+                    results[i] = f.apply(args.get(i));
+                }
+                long cost = (System.nanoTime() - begin) / (end - start);
+                long previous = group.elementNanos;
+                group.elementNanos = previous < 0 ? cost : (3 * previous + cost) / 4;
+                if (remaining.addAndGet(start - end) == 0) {
+                    done.countDown();
+                }
+            }, size, priority));
+            available.release();
+        }
+        done.await();
+        @SuppressWarnings("unchecked")
+        List<R> list = (List<R>) Arrays.asList(results);
+        return list;
+    }
+
+    /**
+     * Returns number of elements of {@code group} mapped by the next task.
+     * The first chunk of a group is a single element that estimates its cost.
+     * Then chunks are guided: every claim takes {@code 1 / CHUNKS_PER_THREAD} of an even share
+     * of the remaining elements, but, by the cost per element measured on this group,
+     * at least {@link #MIN_CHUNK_NANOS}, so scheduling overhead is amortized for cheap functions,
+     * and at most {@link #MAX_CHUNK_NANOS}, so a turn is short and other calls wait at most that long.
+     * A chunk never exceeds an even share of a worker, so a call always runs on as many workers as it could.
+     *
+     * @param group group to take the chunk from.
+     * @return chunk size, positive and not greater than the number of unclaimed elements.
+     */
+    private int chunkSize(TaskGroup group) {
+        long workers = threads.size();
+        long remaining = group.size - group.next;
+        long cost = group.elementNanos;
+        long chunk = 1;
+        if (cost >= 0) {
+            long perElement = Math.max(cost, 1);
+            long guided = (remaining + workers * CHUNKS_PER_THREAD - 1) / (workers * CHUNKS_PER_THREAD);
+            chunk = Math.min(Math.max(guided, MIN_CHUNK_NANOS / perElement), MAX_CHUNK_NANOS / perElement);
         }
-        return results;
+        chunk = Math.min(chunk, (group.size + workers - 1) / workers);
+        return (int) Math.max(1, Math.min(chunk, remaining));
     }
 
     /**
@@ -0,0 +1,89 @@
+package info.kgeorgiy.ja.Zaitsev.student;
+
+import java.util.*;
+
+import info.kgeorgiy.java.advanced.student.GroupName;
+import info.kgeorgiy.java.advanced.student.Student;
+
+/**
+ * {@link StudentDB} that answers queries over a {@link StudentStore} from its columns:
+ * names are compared as dictionary codes and sorts reuse orders precomputed by the store.
+ * Queries on other collections fall back to {@link StudentDB}.
+ *
+ * @author Zaitsev Ilya
+ */
+public class ColumnarStudentDB extends StudentDB {
+    @Override
+    public List<String> getFirstNames(List<Student> students) {
+        return students instanceof StudentStore ? ((StudentStore) students).firstNames() : super.getFirstNames(students);
+    }
+
+    @Override
+    public List<String> getLastNames(List<Student> students) {
+        return students instanceof StudentStore ? ((StudentStore) students).lastNames() : super.getLastNames(students);
+    }
+
+    @Override
+    public List<GroupName> getGroups(List<Student> students) {
+        return students instanceof StudentStore ? ((StudentStore) students).groups() : super.getGroups(students);
+    }
+
+    @Override
+    public List<String> getFullNames(List<Student> students) {
+        return students instanceof StudentStore ? ((StudentStore) students).fullNames() : super.getFullNames(students);
+    }
+
+    @Override
+    public Set<String> getDistinctFirstNames(List<Student> students) {
+        return students instanceof StudentStore
+                ? ((StudentStore) students).distinctFirstNames()
+                : super.getDistinctFirstNames(students);
+    }
+
+    @Override
+    public String getMaxStudentFirstName(List<Student> students) {
+        return students instanceof StudentStore
+                ? ((StudentStore) students).maxStudentFirstName()
+                : super.getMaxStudentFirstName(students);
+    }
+
+    @Override
+    public List<Student> sortStudentsById(Collection<Student> students) {
+        return students instanceof StudentStore ? ((StudentStore) students).sortedById() : super.sortStudentsById(students);
+    }
+
+    @Override
+    public List<Student> sortStudentsByName(Collection<Student> students) {
+        return students instanceof StudentStore
+                ? ((StudentStore) students).sortedByName()
+                : super.sortStudentsByName(students);
+    }
+
+    @Override
+    public List<Student> findStudentsByFirstName(Collection<Student> students, String name) {
+        return students instanceof StudentStore
+                ? ((StudentStore) students).findByFirstName(name)
+                : super.findStudentsByFirstName(students, name);
+    }
+
+    @Override
+    public List<Student> findStudentsByLastName(Collection<Student> students, String name) {
+        return students instanceof StudentStore
+                ? ((StudentStore) students).findByLastName(name)
+                : super.findStudentsByLastName(students, name);
+    }
+
+    @Override
+    public List<Student> findStudentsByGroup(Collection<Student> students, GroupName group) {
+        return students instanceof StudentStore
+                ? ((StudentStore) students).findByGroup(group)
+                : super.findStudentsByGroup(students, group);
+    }
+
+    @Override
+    public Map<String, String> findStudentNamesByGroup(Collection<Student> students, GroupName group) {
+        return students instanceof StudentStore
+                ? ((StudentStore) students).namesByGroup(group)
+                : super.findStudentNamesByGroup(students, group);
+    }
+}
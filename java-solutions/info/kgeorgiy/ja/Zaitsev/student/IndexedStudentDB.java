@@ -0,0 +1,86 @@
+package info.kgeorgiy.ja.Zaitsev.student;
+
+import java.util.*;
+import java.util.function.BinaryOperator;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import info.kgeorgiy.java.advanced.student.GroupName;
+import info.kgeorgiy.java.advanced.student.Student;
+
+/**
+ * {@link StudentDB} with hash indexes over a fixed roster.
+ * <p>
+ * Indexes by group, first name and last name are built once, each list already sorted
+ * by name order, so {@code findStudentsBy*} queries on the roster take O(1) and
+ * {@link #findStudentNamesByGroup} takes O(result size). Queries on other collections
+ * fall back to {@link StudentDB}. The roster must not be modified after construction.
+ * Returned lists are shared and unmodifiable.
+ *
+ * @author Zaitsev Ilya
+ */
+public class IndexedStudentDB extends StudentDB {
+    private final Collection<Student> roster;
+    private final Map<GroupName, List<Student>> byGroup;
+    private final Map<String, List<Student>> byFirstName;
+    private final Map<String, List<Student>> byLastName;
+
+    /**
+     * Builds indexes over {@code roster} in O(n log n).
+     *
+     * @param roster students to index.
+     */
+    public IndexedStudentDB(Collection<Student> roster) {
+        this(roster, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Builds indexes over {@code roster}, processing large collections in parallel
+     * as {@link StudentDB#StudentDB(int)} does.
+     *
+     * @param roster            students to index.
+     * @param parallelThreshold minimal collection size for parallel processing.
+     */
+    public IndexedStudentDB(Collection<Student> roster, int parallelThreshold) {
+        super(parallelThreshold);
+        this.roster = roster;
+        List<Student> sorted = sortStudentsByName(roster);
+        byGroup = index(sorted, Student::getGroup);
+        byFirstName = index(sorted, Student::getFirstName);
+        byLastName = index(sorted, Student::getLastName);
+    }
+
+    // grouping keeps encounter order, so every list stays sorted
+    private static <K> Map<K, List<Student>> index(List<Student> sorted, Function<Student, K> key) {
+        return sorted.stream().collect(Collectors.groupingBy(key,
+                Collectors.collectingAndThen(Collectors.toList(), Collections::unmodifiableList)));
+    }
+
+    private static <K> List<Student> lookup(Map<K, List<Student>> index, K key) {
+        return index.getOrDefault(key, Collections.emptyList());
+    }
+
+    @Override
+    public List<Student> findStudentsByFirstName(Collection<Student> students, String name) {
+        return students == roster ? lookup(byFirstName, name) : super.findStudentsByFirstName(students, name);
+    }
+
+    @Override
+    public List<Student> findStudentsByLastName(Collection<Student> students, String name) {
+        return students == roster ? lookup(byLastName, name) : super.findStudentsByLastName(students, name);
+    }
+
+    @Override
+    public List<Student> findStudentsByGroup(Collection<Student> students, GroupName group) {
+        return students == roster ? lookup(byGroup, group) : super.findStudentsByGroup(students, group);
+    }
+
+    @Override
+    public Map<String, String> findStudentNamesByGroup(Collection<Student> students, GroupName group) {
+        if (students != roster) {
+            return super.findStudentNamesByGroup(students, group);
+        }
+        return lookup(byGroup, group).stream().collect(Collectors
+                .toMap(Student::getLastName, Student::getFirstName, BinaryOperator.minBy(String::compareTo)));
+    }
+}
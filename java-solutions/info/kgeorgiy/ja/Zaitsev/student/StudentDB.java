@@ -5,19 +5,127 @@ import java.util.function.BinaryOperator;
 import java.util.function.Function;
 import java.util.function.Predicate;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
 
 import info.kgeorgiy.java.advanced.student.*;
 
 public class StudentDB implements StudentQuery {
 
     private static final Function<Student, String> GET_FULL_NAME = student -> student.getFirstName() + ' ' + student.getLastName();
-    private static final Comparator<Student> ORDER_BY_NAME = Comparator
-            .comparing(Student::getLastName)
-            .thenComparing(Student::getFirstName)
-            .reversed().thenComparing(Student::getId);
+    // descending last and first names, then ascending id; flat to avoid a chain of wrapped comparators
+    private static final Comparator<Student> ORDER_BY_NAME = (a, b) -> {
+        int cmp = b.getLastName().compareTo(a.getLastName());
+        if (cmp == 0) {
+            cmp = b.getFirstName().compareTo(a.getFirstName());
+        }
+        return cmp != 0 ? cmp : Integer.compare(a.getId(), b.getId());
+    };
+
+    private final int parallelThreshold;
+    // memoised keys of the last queried collection, reused while it holds the same students
+    private volatile Keys keys;
+
+    // name order and full names of a roster, each computed on first request;
+    // the sort key of a student is its rank in name order
+    private final class Keys {
+        private final Student[] students;
+        private Student[] sorted;
+        // written after sorted
+        private volatile int[] ranks;
+        private volatile List<String> fullNames;
+
+        private Keys(Student[] students) {
+            this.students = students;
+        }
+
+        private boolean matches(Collection<Student> roster) {
+            if (roster.size() != students.length) {
+                return false;
+            }
+            int i = 0;
+            for (Student student : roster) {
+                if (students[i++] != student) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private IntStream indices(int size) {
+            IntStream indices = IntStream.range(0, size);
+            return size >= parallelThreshold ? indices.parallel() : indices;
+        }
+
+        private synchronized int[] ranks() {
+            int[] result = ranks;
+            if (result == null) {
+                int[] order = indices(students.length).boxed()
+                        .sorted((a, b) -> ORDER_BY_NAME.compare(students[a], students[b]))
+                        .mapToInt(Integer::intValue).toArray();
+                sorted = new Student[order.length];
+                result = new int[order.length];
+                for (int rank = 0; rank < order.length; rank++) {
+                    sorted[rank] = students[order[rank]];
+                    result[order[rank]] = rank;
+                }
+                ranks = result;
+            }
+            return result;
+        }
+
+        private List<Student> sorted() {
+            ranks();
+            return new ArrayList<>(Arrays.asList(sorted));
+        }
+
+        // filters in roster order and sorts ranks of the matching students only
+        private List<Student> find(Predicate<Student> pred) {
+            int[] ranks = ranks();
+            return indices(students.length).filter(i -> pred.test(students[i])).map(i -> ranks[i]).sorted()
+                    .mapToObj(rank -> sorted[rank]).collect(Collectors.toList());
+        }
+
+        private List<String> fullNames() {
+            List<String> result = fullNames;
+            if (result == null) {
+                result = getStudentList(Arrays.asList(students), GET_FULL_NAME);
+                fullNames = result;
+            }
+            return result;
+        }
+    }
+
+    public StudentDB() {
+        this(Integer.MAX_VALUE);
+    }
+
+    /**
+     * Creates query engine that processes collections of at least {@code parallelThreshold} students
+     * with parallel streams on the common {@link java.util.concurrent.ForkJoinPool}.
+     * Results and their order are the same as in sequential mode.
+     *
+     * @param parallelThreshold minimal collection size for parallel processing.
+     */
+    public StudentDB(int parallelThreshold) {
+        this.parallelThreshold = parallelThreshold;
+    }
+
+    private Stream<Student> stream(Collection<Student> students) {
+        return students.size() >= parallelThreshold ? students.parallelStream() : students.stream();
+    }
+
+    private Keys keys(Collection<Student> students) {
+        Keys result = keys;
+        if (result == null || !result.matches(students)) {
+            result = new Keys(students.toArray(new Student[0]));
+            keys = result;
+        }
+        return result;
+    }
 
     private <T> List<T> getStudentList(List<Student> students, Function<Student, T> function) {
-        return students.stream().map(function).collect(Collectors.toList());
+        return stream(students).map(function).collect(Collectors.toList());
     }
 
     @Override
@@ -37,21 +145,21 @@ public class StudentDB implements StudentQuery {
 
     @Override
     public List<String> getFullNames(List<Student> students) {
-        return getStudentList(students, GET_FULL_NAME);
+        return new ArrayList<>(keys(students).fullNames());
     }
 
     @Override
     public Set<String> getDistinctFirstNames(List<Student> students) {
-        return students.stream().map(Student::getFirstName).collect(Collectors.toSet());
+        return stream(students).map(Student::getFirstName).collect(Collectors.toSet());
     }
 
     @Override
     public String getMaxStudentFirstName(List<Student> students) {
-        return students.stream().max(Comparator.comparing(Student::getId)).map(Student::getFirstName).orElse("");
+        return stream(students).max(Comparator.comparing(Student::getId)).map(Student::getFirstName).orElse("");
     }
 
     private List<Student> sortStudentsByCmp(Collection<Student> students, Comparator<Student> cmp) {
-        return students.stream().sorted(cmp).collect(Collectors.toList());
+        return stream(students).sorted(cmp).collect(Collectors.toList());
     }
 
     @Override
@@ -61,11 +169,11 @@ public class StudentDB implements StudentQuery {
 
     @Override
     public List<Student> sortStudentsByName(Collection<Student> students) {
-        return sortStudentsByCmp(students, ORDER_BY_NAME);
+        return keys(students).sorted();
     }
 
     private List<Student> findStudentsByPred(Collection<Student> students, Predicate<Student> pred) {
-        return students.stream().filter(pred).sorted(ORDER_BY_NAME).collect(Collectors.toList());
+        return keys(students).find(pred);
     }
 
     @Override
@@ -85,7 +193,44 @@ public class StudentDB implements StudentQuery {
 
     @Override
     public Map<String, String> findStudentNamesByGroup(Collection<Student> students, GroupName group) {
-        return students.stream().filter(student -> student.getGroup().equals(group)).collect(Collectors
+        return stream(students).filter(student -> student.getGroup().equals(group)).collect(Collectors
                 .toMap(Student::getLastName, Student::getFirstName, BinaryOperator.minBy(String::compareTo)));
     }
+
+    /**
+     * Counts students of every group in one pass.
+     *
+     * @param students students to count.
+     * @return group sizes, groups without students are absent.
+     */
+    public Map<GroupName, Long> getGroupSizes(Collection<Student> students) {
+        return stream(students).collect(Collectors
+                .groupingBy(Student::getGroup, () -> new EnumMap<>(GroupName.class), Collectors.counting()));
+    }
+
+    /**
+     * Counts distinct first names in every group in one pass.
+     * Keeps only distinct names of each group, not lists of students.
+     *
+     * @param students students to count.
+     * @return distinct first name counts, groups without students are absent.
+     */
+    public Map<GroupName, Integer> getDistinctFirstNameCounts(Collection<Student> students) {
+        return stream(students).collect(Collectors.groupingBy(Student::getGroup, () -> new EnumMap<>(GroupName.class),
+                Collectors.mapping(Student::getFirstName, Collectors.collectingAndThen(Collectors.toSet(), Set::size))));
+    }
+
+    /**
+     * Returns {@code k} largest groups. Groups of equal size are ordered by name.
+     *
+     * @param students students to count.
+     * @param k        number of groups to return.
+     * @return at most {@code k} groups in descending order of size.
+     */
+    public List<GroupName> getLargestGroups(Collection<Student> students, int k) {
+        return getGroupSizes(students).entrySet().stream()
+                .sorted(Map.Entry.<GroupName, Long>comparingByValue().reversed()
+                        .thenComparing(Map.Entry.comparingByKey()))
+                .limit(k).map(Map.Entry::getKey).collect(Collectors.toList());
+    }
 }
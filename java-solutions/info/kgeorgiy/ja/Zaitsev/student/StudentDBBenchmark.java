@@ -0,0 +1,118 @@
+package info.kgeorgiy.ja.Zaitsev.student;
+
+import java.util.*;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import info.kgeorgiy.java.advanced.student.GroupName;
+import info.kgeorgiy.java.advanced.student.Student;
+
+/**
+ * Query benchmark of {@link StudentDB} engines over a synthetic roster.
+ * <p>
+ * Row {@code chained} runs the former queries without cached sort keys: it sorts with
+ * a {@code Comparator.comparing(...).thenComparing(...)} chain and concatenates full names on every call.
+ * It serves as the baseline for the other rows.
+ * {@link IndexedStudentDB} and {@link ColumnarStudentDB} are queried on the collection they were built for.
+ * Result sizes are summed and printed as the last line.
+ *
+ * @author Zaitsev Ilya
+ */
+public class StudentDBBenchmark {
+    private static final int WARMUP = 3;
+    private static final int ITERATIONS = 5;
+    private static final int FIRST_NAMES = 1_000;
+    private static final int LAST_NAMES = 10_000;
+
+    private static final Comparator<Student> CHAINED_ORDER = Comparator
+            .comparing(Student::getLastName)
+            .thenComparing(Student::getFirstName)
+            .reversed().thenComparing(Student::getId);
+
+    // sum of result sizes, printed so that queries are not eliminated
+    private static long checksum = 0;
+
+    // former StudentDB queries
+    private static class ChainedStudentDB extends StudentDB {
+        private static List<Student> sorted(Stream<Student> students) {
+            return students.sorted(CHAINED_ORDER).collect(Collectors.toList());
+        }
+
+        @Override
+        public List<Student> sortStudentsByName(Collection<Student> students) {
+            return sorted(students.stream());
+        }
+
+        @Override
+        public List<Student> findStudentsByFirstName(Collection<Student> students, String name) {
+            return sorted(students.stream().filter(student -> student.getFirstName().equals(name)));
+        }
+
+        @Override
+        public List<Student> findStudentsByGroup(Collection<Student> students, GroupName group) {
+            return sorted(students.stream().filter(student -> student.getGroup().equals(group)));
+        }
+
+        @Override
+        public List<String> getFullNames(List<Student> students) {
+            return students.stream().map(student -> student.getFirstName() + ' ' + student.getLastName())
+                    .collect(Collectors.toList());
+        }
+    }
+
+    private static double measure(Function<Integer, Collection<?>> query) {
+        double best = Double.MAX_VALUE;
+        for (int i = 0; i < WARMUP + ITERATIONS; i++) {
+            long start = System.nanoTime();
+            Collection<?> result = query.apply(i);
+            long elapsed = System.nanoTime() - start;
+            checksum += result.size();
+            if (i >= WARMUP) {
+                best = Math.min(best, elapsed / 1e6);
+            }
+        }
+        return best;
+    }
+
+    private static void print(String engine, List<Student> roster, StudentDB db) {
+        GroupName[] groups = GroupName.values();
+        System.out.printf("%-10s %12.1f %12.1f %12.1f %12.1f%n", engine,
+                measure(i -> db.sortStudentsByName(roster)),
+                measure(i -> db.findStudentsByFirstName(roster, "First" + i)),
+                measure(i -> db.findStudentsByGroup(roster, groups[i % groups.length])),
+                measure(i -> db.getFullNames(roster)));
+    }
+
+    /**
+     * Main function. Prints milliseconds per query for every engine.
+     *
+     * @param args roster size, {@code 1000000} by default.
+     */
+    public static void main(String[] args) {
+        int n = 1_000_000;
+        if (args.length > 0) {
+            try {
+                n = Integer.parseInt(args[0]);
+            } catch (NumberFormatException e) {
+                System.err.println("Incorrect arguments. Usage: [<roster size>]");
+                return;
+            }
+        }
+        Random random = new Random(8682522807148012L);
+        GroupName[] groups = GroupName.values();
+        List<Student> roster = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            roster.add(new Student(random.nextInt(), "First" + random.nextInt(FIRST_NAMES),
+                    "Last" + random.nextInt(LAST_NAMES), groups[random.nextInt(groups.length)]));
+        }
+
+        System.out.printf("%-10s %12s %12s %12s %12s%n", "ms", "byName", "byFirstName", "byGroup", "fullNames");
+        print("chained", roster, new ChainedStudentDB());
+        print("plain", roster, new StudentDB());
+        print("parallel", roster, new StudentDB(0));
+        print("indexed", roster, new IndexedStudentDB(roster));
+        print("columnar", new StudentStore(roster), new ColumnarStudentDB());
+        System.out.println("checksum: " + checksum);
+    }
+}
@@ -0,0 +1,221 @@
+package info.kgeorgiy.ja.Zaitsev.student;
+
+import java.util.*;
+
+import info.kgeorgiy.java.advanced.student.GroupName;
+import info.kgeorgiy.java.advanced.student.Student;
+
+/**
+ * Immutable columnar list of students.
+ * <p>
+ * Students are stored as an {@code int[]} of ids and dictionary-encoded first name, last name
+ * and group columns. Dictionaries are sorted, so codes compare as the strings do and
+ * the name order is computed once by counting sorts over codes.
+ * {@link #get(int)} creates a new {@link Student} from the columns.
+ * Queries over a store are answered by {@link ColumnarStudentDB} without materializing all students.
+ *
+ * @author Zaitsev Ilya
+ */
+public class StudentStore extends AbstractList<Student> implements RandomAccess {
+    private static final GroupName[] GROUPS = GroupName.values();
+
+    private final int[] ids;
+    private final int[] firstNames;
+    private final int[] lastNames;
+    private final int[] groups;
+    private final String[] firstNameDictionary;
+    private final String[] lastNameDictionary;
+    // student indices in id order and in name order
+    private final int[] byId;
+    private final int[] byName;
+    // built on first request, equal full names share one string
+    private volatile String[] fullNames;
+
+    /**
+     * Creates store of {@code students} in iteration order.
+     *
+     * @param students students to store.
+     */
+    public StudentStore(Collection<Student> students) {
+        int n = students.size();
+        ids = new int[n];
+        firstNames = new int[n];
+        lastNames = new int[n];
+        groups = new int[n];
+        Map<String, Integer> firstCodes = new HashMap<>();
+        Map<String, Integer> lastCodes = new HashMap<>();
+        int i = 0;
+        for (Student student : students) {
+            ids[i] = student.getId();
+            firstNames[i] = code(firstCodes, student.getFirstName());
+            lastNames[i] = code(lastCodes, student.getLastName());
+            groups[i] = student.getGroup().ordinal();
+            i++;
+        }
+        firstNameDictionary = sortedDictionary(firstCodes, firstNames);
+        lastNameDictionary = sortedDictionary(lastCodes, lastNames);
+
+        long[] keys = new long[n];
+        for (i = 0; i < n; i++) {
+            keys[i] = (long) ids[i] << 32 | i;
+        }
+        Arrays.sort(keys);
+        byId = new int[n];
+        for (i = 0; i < n; i++) {
+            byId[i] = (int) keys[i];
+        }
+        // stable passes from the least significant key: id, then first name, then last name
+        byName = sortDescending(sortDescending(byId, firstNames, firstNameDictionary.length),
+                lastNames, lastNameDictionary.length);
+    }
+
+    private static int code(Map<String, Integer> codes, String value) {
+        Integer code = codes.get(value);
+        if (code == null) {
+            code = codes.size();
+            codes.put(value, code);
+        }
+        return code;
+    }
+
+    // renumbers codes in sorted order of values
+    private static String[] sortedDictionary(Map<String, Integer> codes, int[] column) {
+        String[] dictionary = codes.keySet().toArray(new String[0]);
+        Arrays.sort(dictionary);
+        int[] renumber = new int[dictionary.length];
+        for (int i = 0; i < dictionary.length; i++) {
+            renumber[codes.get(dictionary[i])] = i;
+        }
+        for (int i = 0; i < column.length; i++) {
+            column[i] = renumber[column[i]];
+        }
+        return dictionary;
+    }
+
+    // stable counting sort of order by descending codes
+    private static int[] sortDescending(int[] order, int[] column, int codes) {
+        int[] start = new int[codes + 1];
+        for (int code : column) {
+            start[codes - code]++;
+        }
+        for (int i = 1; i <= codes; i++) {
+            start[i] += start[i - 1];
+        }
+        int[] sorted = new int[order.length];
+        for (int i : order) {
+            sorted[start[codes - 1 - column[i]]++] = i;
+        }
+        return sorted;
+    }
+
+    @Override
+    public Student get(int index) {
+        return new Student(ids[index], firstNameDictionary[firstNames[index]],
+                lastNameDictionary[lastNames[index]], GROUPS[groups[index]]);
+    }
+
+    @Override
+    public int size() {
+        return ids.length;
+    }
+
+    List<String> firstNames() {
+        return decode(firstNames, firstNameDictionary);
+    }
+
+    List<String> lastNames() {
+        return decode(lastNames, lastNameDictionary);
+    }
+
+    private static List<String> decode(int[] column, String[] dictionary) {
+        List<String> result = new ArrayList<>(column.length);
+        for (int code : column) {
+            result.add(dictionary[code]);
+        }
+        return result;
+    }
+
+    List<GroupName> groups() {
+        List<GroupName> result = new ArrayList<>(groups.length);
+        for (int group : groups) {
+            result.add(GROUPS[group]);
+        }
+        return result;
+    }
+
+    List<String> fullNames() {
+        String[] column = fullNames;
+        if (column == null) {
+            column = new String[ids.length];
+            Map<Long, String> names = new HashMap<>();
+            for (int i = 0; i < ids.length; i++) {
+                int first = firstNames[i];
+                int last = lastNames[i];
+                column[i] = names.computeIfAbsent((long) first << 32 | last,
+                        key -> firstNameDictionary[first] + ' ' + lastNameDictionary[last]);
+            }
+            fullNames = column;
+        }
+        return new ArrayList<>(Arrays.asList(column));
+    }
+
+    Set<String> distinctFirstNames() {
+        return new HashSet<>(Arrays.asList(firstNameDictionary));
+    }
+
+    String maxStudentFirstName() {
+        if (ids.length == 0) {
+            return "";
+        }
+        int max = 0;
+        for (int i = 1; i < ids.length; i++) {
+            if (ids[i] > ids[max]) {
+                max = i;
+            }
+        }
+        return firstNameDictionary[firstNames[max]];
+    }
+
+    List<Student> sortedById() {
+        return select(byId, null, 0);
+    }
+
+    List<Student> sortedByName() {
+        return select(byName, null, 0);
+    }
+
+    List<Student> findByFirstName(String name) {
+        int code = Arrays.binarySearch(firstNameDictionary, name);
+        return code < 0 ? new ArrayList<>() : select(byName, firstNames, code);
+    }
+
+    List<Student> findByLastName(String name) {
+        int code = Arrays.binarySearch(lastNameDictionary, name);
+        return code < 0 ? new ArrayList<>() : select(byName, lastNames, code);
+    }
+
+    List<Student> findByGroup(GroupName group) {
+        return select(byName, groups, group.ordinal());
+    }
+
+    private List<Student> select(int[] order, int[] column, int code) {
+        List<Student> result = new ArrayList<>();
+        for (int i : order) {
+            if (column == null || column[i] == code) {
+                result.add(get(i));
+            }
+        }
+        return result;
+    }
+
+    Map<String, String> namesByGroup(GroupName group) {
+        Map<String, String> result = new HashMap<>();
+        // first names of the same last name go in descending order, the last one is the least
+        for (int i : byName) {
+            if (groups[i] == group.ordinal()) {
+                result.put(lastNameDictionary[lastNames[i]], firstNameDictionary[firstNames[i]]);
+            }
+        }
+        return result;
+    }
+}
@@ -0,0 +1,45 @@
+package info.kgeorgiy.ja.Zaitsev.walk;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+
+/**
+ * Thread-safe writer of per-chunk hashes produced by {@link TreeHasher}.
+ * <p>
+ * For every file its chunks are written together, one line per chunk:
+ * {@code <hashes> <chunk index> <path>}. Files go in the order they were hashed.
+ *
+ * @author Zaitsev Ilya
+ */
+class ChunkLog {
+    private final BufferedWriter writer;
+    private final HexEncoder hex;
+
+    /**
+     * Creates log writing to {@code writer}.
+     *
+     * @param writer  output for chunk lines.
+     * @param lengths lengths of digests concatenated in a hash.
+     */
+    ChunkLog(BufferedWriter writer, int[] lengths) {
+        this.writer = writer;
+        this.hex = new HexEncoder(lengths);
+    }
+
+    /**
+     * Writes chunk hashes of {@code file}.
+     *
+     * @param file   hashed file.
+     * @param chunks hashes of all its chunks in order.
+     * @throws IOException if writing failed.
+     */
+    synchronized void write(String file, byte[][] chunks) throws IOException {
+        for (int i = 0; i < chunks.length; i++) {
+            writer.write(hex.encode(chunks[i]), 0, hex.length());
+            writer.write(Integer.toString(i));
+            writer.write(' ');
+            writer.write(file);
+            writer.newLine();
+        }
+    }
+}
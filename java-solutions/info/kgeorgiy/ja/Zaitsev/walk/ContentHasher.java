@@ -0,0 +1,21 @@
+package info.kgeorgiy.ja.Zaitsev.walk;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * Calculates combined hash of file contents.
+ *
+ * @author Zaitsev Ilya
+ */
+@FunctionalInterface
+interface ContentHasher {
+    /**
+     * Hashes contents of {@code file}. Can be called concurrently from several threads.
+     *
+     * @param file file to hash.
+     * @return combined hash of all digests.
+     * @throws IOException if file couldn't be read.
+     */
+    byte[] hash(Path file) throws IOException;
+}
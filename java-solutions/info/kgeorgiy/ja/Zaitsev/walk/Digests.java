@@ -0,0 +1,121 @@
+package info.kgeorgiy.ja.Zaitsev.walk;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.stream.Collectors;
+
+/**
+ * Set of digest algorithms calculated together in a single pass over every file.
+ * Each thread gets its own instances. Combined hash is the concatenation of all digests.
+ *
+ * @author Zaitsev Ilya
+ */
+class Digests {
+    private final String[] algorithms;
+    private final int[] lengths;
+    private final byte[] emptyHash;
+    private final ThreadLocal<MessageDigest[]> digests = ThreadLocal.withInitial(this::createAll);
+
+    /**
+     * Creates set of {@code algorithms}.
+     * Besides algorithms of {@link MessageDigest}, in-tree {@link XxHash64#ALGORITHM} is supported.
+     *
+     * @param algorithms algorithm names.
+     * @throws NoSuchAlgorithmException if some algorithm is unavailable.
+     */
+    Digests(String... algorithms) throws NoSuchAlgorithmException {
+        if (algorithms.length == 0) {
+            throw new IllegalArgumentException("At least one algorithm is required");
+        }
+        MessageDigest[] instances = create(algorithms);
+        this.algorithms = Arrays.stream(instances).map(MessageDigest::getAlgorithm).toArray(String[]::new);
+        this.lengths = Arrays.stream(instances).mapToInt(MessageDigest::getDigestLength).toArray();
+        this.emptyHash = new byte[Arrays.stream(lengths).sum()];
+        digests.set(instances);
+    }
+
+    private static MessageDigest create(String algorithm) throws NoSuchAlgorithmException {
+        if (XxHash64.ALGORITHM.equals(algorithm.toUpperCase(Locale.ROOT))) {
+            return new XxHash64();
+        }
+        return MessageDigest.getInstance(algorithm.toUpperCase(Locale.ROOT));
+    }
+
+    private static MessageDigest[] create(String[] algorithms) throws NoSuchAlgorithmException {
+        MessageDigest[] instances = new MessageDigest[algorithms.length];
+        for (int i = 0; i < algorithms.length; i++) {
+            instances[i] = create(algorithms[i]);
+        }
+        return instances;
+    }
+
+    private MessageDigest[] createAll() {
+        try {
+            return create(algorithms);
+        } catch (NoSuchAlgorithmException e) {
+            throw new AssertionError("Algorithm became unavailable: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Returns digests of the calling thread in initial state.
+     *
+     * @return digests to update.
+     */
+    MessageDigest[] get() {
+        MessageDigest[] instances = digests.get();
+        for (MessageDigest digest : instances) {
+            digest.reset();
+        }
+        return instances;
+    }
+
+    /**
+     * Completes {@code instances} and concatenates their results.
+     *
+     * @param instances digests returned by {@link #get()}.
+     * @return combined hash.
+     */
+    static byte[] digest(MessageDigest[] instances) {
+        if (instances.length == 1) {
+            return instances[0].digest();
+        }
+        byte[] hash = new byte[Arrays.stream(instances).mapToInt(MessageDigest::getDigestLength).sum()];
+        int offset = 0;
+        for (MessageDigest digest : instances) {
+            byte[] part = digest.digest();
+            System.arraycopy(part, 0, hash, offset, part.length);
+            offset += part.length;
+        }
+        return hash;
+    }
+
+    /**
+     * Returns length of every digest in combined hash.
+     *
+     * @return digest lengths in bytes.
+     */
+    int[] lengths() {
+        return lengths.clone();
+    }
+
+    /**
+     * Returns combined hash written for files that couldn't be read.
+     *
+     * @return zero hash.
+     */
+    byte[] emptyHash() {
+        return emptyHash;
+    }
+
+    /**
+     * Returns canonical description of the algorithm set.
+     *
+     * @return comma-separated algorithm names.
+     */
+    String mode() {
+        return Arrays.stream(algorithms).collect(Collectors.joining(","));
+    }
+}
@@ -0,0 +1,97 @@
+package info.kgeorgiy.ja.Zaitsev.walk;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+
+/**
+ * Feeds file contents into one or more {@link MessageDigest}s without copying them to the heap.
+ * Every file is read once, whatever number of digests is updated.
+ * <p>
+ * Files of at least {@code mapThreshold} bytes are memory-mapped region by region,
+ * smaller ones are read through a direct buffer reused by the calling thread.
+ *
+ * @author Zaitsev Ilya
+ */
+class FileHasher implements ContentHasher {
+    /**
+     * Default size starting from which files are memory-mapped.
+     */
+    static final long DEFAULT_MAP_THRESHOLD = 1 << 20;
+
+    private static final int BUFFER_SIZE = 1 << 16;
+    private static final long MAP_REGION = 1 << 26;
+
+    private final Digests digests;
+    private final long mapThreshold;
+    private final ThreadLocal<ByteBuffer> buffer = ThreadLocal.withInitial(() -> ByteBuffer.allocateDirect(BUFFER_SIZE));
+
+    /**
+     * Creates hasher mapping files of at least {@code mapThreshold} bytes.
+     *
+     * @param digests      digests to calculate.
+     * @param mapThreshold minimal size of memory-mapped files.
+     */
+    FileHasher(Digests digests, long mapThreshold) {
+        if (mapThreshold < 0) {
+            throw new IllegalArgumentException("Map threshold couldn't be negative");
+        }
+        this.digests = digests;
+        this.mapThreshold = mapThreshold;
+    }
+
+    @Override
+    public byte[] hash(Path file) throws IOException {
+        MessageDigest[] instances = digests.get();
+        update(file, instances);
+        return Digests.digest(instances);
+    }
+
+    /**
+     * Updates {@code digests} with the whole contents of {@code file}.
+     *
+     * @param file    file to read.
+     * @param digests digests to update.
+     * @throws IOException if file couldn't be read.
+     */
+    void update(Path file, MessageDigest... digests) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            // size is 0 for pipes and devices, they are always read sequentially
+            long size = channel.size();
+            if (size > 0 && size >= mapThreshold) {
+                map(channel, size, digests);
+            } else {
+                read(channel, digests);
+            }
+        }
+    }
+
+    private static void map(FileChannel channel, long size, MessageDigest[] digests) throws IOException {
+        for (long position = 0; position < size; position += MAP_REGION) {
+            MappedByteBuffer region = channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(MAP_REGION, size - position));
+            update(region, digests);
+        }
+    }
+
+    private void read(FileChannel channel, MessageDigest[] digests) throws IOException {
+        ByteBuffer bytes = buffer.get();
+        bytes.clear();
+        while (channel.read(bytes) >= 0) {
+            bytes.flip();
+            update(bytes, digests);
+            bytes.clear();
+        }
+    }
+
+    private static void update(ByteBuffer bytes, MessageDigest[] digests) {
+        int position = bytes.position();
+        for (MessageDigest digest : digests) {
+            bytes.position(position);
+            digest.update(bytes);
+        }
+    }
+}
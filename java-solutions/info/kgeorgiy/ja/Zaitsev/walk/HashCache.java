@@ -0,0 +1,348 @@
+package info.kgeorgiy.ja.Zaitsev.walk;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * On-disk cache of file hashes keyed by absolute path, size, modification time and file key.
+ * <p>
+ * Cached hash is used only if all of size, modification time and file key are unchanged.
+ * Hashes of files modified less than {@link #RACY_INTERVAL} before the run started are not stored,
+ * because later writes within the same timestamp tick wouldn't change modification time.
+ * Whole cache is dropped if it was made for another hashing mode or couldn't be parsed.
+ * Only entries of files seen during the run are saved back.
+ * <p>
+ * File format is a header ({@code MAGIC}, {@code VERSION}, mode) followed by entries
+ * (path, size, modification time in nanoseconds, file key, hash) sorted by path bytes,
+ * strings and hashes are prefixed by their length.
+ * The file stays mapped during the run and is looked up by binary search over entry offsets,
+ * so entries aren't copied to the heap. Entries seen during the run are appended to a journal
+ * next to the cache file, which is sorted into the new cache on {@link #save()}.
+ *
+ * @author Zaitsev Ilya
+ */
+class HashCache {
+    private static final int MAGIC = 0x57414c4b;
+    private static final int VERSION = 3;
+    private static final long RACY_INTERVAL = TimeUnit.SECONDS.toNanos(2);
+    private static final ByteBuffer EMPTY = ByteBuffer.allocate(0);
+
+    private final Path file;
+    private final String mode;
+    private final long startTime;
+    // mapped cache file and offsets of its entries in path order
+    private final ByteBuffer loaded;
+    private final int[] offsets;
+    // guarded by this
+    private Path journalFile;
+    private DataOutputStream journal;
+    private IOException journalError;
+
+    private static final class Entry {
+        private final long size;
+        private final long modified;
+        private final String fileKey;
+        private final byte[] hash;
+
+        private Entry(long size, long modified, String fileKey, byte[] hash) {
+            this.size = size;
+            this.modified = modified;
+            this.fileKey = fileKey;
+            this.hash = hash;
+        }
+
+        private Entry(BasicFileAttributes attributes, byte[] hash) {
+            this(attributes.size(), attributes.lastModifiedTime().to(TimeUnit.NANOSECONDS),
+                    Objects.toString(attributes.fileKey(), ""), hash);
+        }
+
+        private boolean matches(Entry other) {
+            return size == other.size && modified == other.modified && fileKey.equals(other.fileKey);
+        }
+    }
+
+    private HashCache(Path file, String mode, ByteBuffer loaded, int[] offsets) {
+        this.file = file;
+        this.mode = mode;
+        this.startTime = TimeUnit.MILLISECONDS.toNanos(System.currentTimeMillis());
+        this.loaded = loaded;
+        this.offsets = offsets;
+    }
+
+    /**
+     * Loads cache from {@code file}. Missing, damaged or foreign cache gives an empty one.
+     *
+     * @param file cache file.
+     * @param mode description of hashing mode, cache for other mode is ignored.
+     * @return loaded cache.
+     */
+    static HashCache load(Path file, String mode) {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                System.err.println("Hash cache is too large, ignoring it: " + file);
+            } else {
+                ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+                int[] offsets = parse(buffer, mode);
+                if (offsets != null) {
+                    return new HashCache(file, mode, buffer, offsets);
+                }
+            }
+        } catch (NoSuchFileException ignored) {
+            // first run, cache is created on save
+        } catch (IOException e) {
+            System.err.println("Couldn't read hash cache, ignoring it: " + e.getMessage());
+        }
+        return new HashCache(file, mode, EMPTY, new int[0]);
+    }
+
+    private static int[] parse(ByteBuffer buffer, String mode) {
+        try {
+            if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION || !mode.equals(getString(buffer))) {
+                return null;
+            }
+            int[] offsets = index(buffer, buffer.position());
+            for (int i = 1; i < offsets.length; i++) {
+                if (comparePaths(buffer, offsets[i - 1], offsets[i]) >= 0) {
+                    throw new BufferUnderflowException();
+                }
+            }
+            return offsets;
+        } catch (BufferUnderflowException e) {
+            System.err.println("Hash cache is damaged, ignoring it");
+            return null;
+        }
+    }
+
+    // offsets of entries from position to the end of buffer
+    private static int[] index(ByteBuffer buffer, int position) {
+        int[] offsets = new int[16];
+        int count = 0;
+        while (position < buffer.limit()) {
+            if (count == offsets.length) {
+                offsets = Arrays.copyOf(offsets, 2 * count);
+            }
+            offsets[count++] = position;
+            position = skip(buffer, position);
+        }
+        return Arrays.copyOf(offsets, count);
+    }
+
+    private static int skip(ByteBuffer buffer, int position) {
+        position = skipBytes(buffer, position) + 2 * Long.BYTES;
+        return skipBytes(buffer, skipBytes(buffer, position));
+    }
+
+    private static int skipBytes(ByteBuffer buffer, int position) {
+        if (buffer.limit() - position < Integer.BYTES) {
+            throw new BufferUnderflowException();
+        }
+        int length = buffer.getInt(position);
+        position += Integer.BYTES;
+        if (length < 0 || length > buffer.limit() - position) {
+            throw new BufferUnderflowException();
+        }
+        return position + length;
+    }
+
+    private static String getString(ByteBuffer buffer) {
+        return new String(getBytes(buffer), StandardCharsets.UTF_8);
+    }
+
+    private static byte[] getBytes(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length < 0 || length > buffer.remaining()) {
+            throw new BufferUnderflowException();
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return bytes;
+    }
+
+    // absolute read, so the buffer may be shared by threads
+    private static byte[] getBytes(ByteBuffer buffer, int position) {
+        byte[] bytes = new byte[buffer.getInt(position)];
+        buffer.get(position + Integer.BYTES, bytes);
+        return bytes;
+    }
+
+    // UTF-8 bytes compared as unsigned, which is the code point order
+    private static int compare(ByteBuffer buffer, int offset, int length, ByteBuffer other, int otherOffset, int otherLength) {
+        for (int i = 0; i < length && i < otherLength; i++) {
+            int cmp = Byte.compareUnsigned(buffer.get(offset + i), other.get(otherOffset + i));
+            if (cmp != 0) {
+                return cmp;
+            }
+        }
+        return Integer.compare(length, otherLength);
+    }
+
+    private static int comparePaths(ByteBuffer buffer, int a, int b) {
+        return compare(buffer, a + Integer.BYTES, buffer.getInt(a), buffer, b + Integer.BYTES, buffer.getInt(b));
+    }
+
+    private static byte[] key(Path path) {
+        return path.toAbsolutePath().normalize().toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private Entry find(byte[] key) {
+        ByteBuffer wrapped = ByteBuffer.wrap(key);
+        int low = 0;
+        int high = offsets.length - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int offset = offsets[mid];
+            int cmp = compare(loaded, offset + Integer.BYTES, loaded.getInt(offset), wrapped, 0, key.length);
+            if (cmp < 0) {
+                low = mid + 1;
+            } else if (cmp > 0) {
+                high = mid - 1;
+            } else {
+                int position = offset + Integer.BYTES + key.length;
+                long size = loaded.getLong(position);
+                long modified = loaded.getLong(position + Long.BYTES);
+                byte[] fileKey = getBytes(loaded, position + 2 * Long.BYTES);
+                byte[] hash = getBytes(loaded, position + 2 * Long.BYTES + Integer.BYTES + fileKey.length);
+                return new Entry(size, modified, new String(fileKey, StandardCharsets.UTF_8), hash);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns cached hash of {@code path} if file wasn't changed since it was cached.
+     *
+     * @param path       file to look up.
+     * @param attributes current attributes of the file.
+     * @return cached hash or {@code null}.
+     */
+    byte[] lookup(Path path, BasicFileAttributes attributes) {
+        byte[] key = key(path);
+        Entry entry = find(key);
+        if (entry != null && entry.matches(new Entry(attributes, null))) {
+            append(key, entry);
+            return entry.hash;
+        }
+        return null;
+    }
+
+    /**
+     * Stores hash of {@code path} calculated after {@code attributes} were read.
+     *
+     * @param path       hashed file.
+     * @param attributes attributes of the file read before hashing.
+     * @param hash       hash to store.
+     */
+    void store(Path path, BasicFileAttributes attributes, byte[] hash) {
+        Entry entry = new Entry(attributes, hash);
+        if (attributes.isRegularFile() && entry.modified < startTime - RACY_INTERVAL) {
+            append(key(path), entry);
+        }
+    }
+
+    private synchronized void append(byte[] key, Entry entry) {
+        if (journalError != null) {
+            return;
+        }
+        try {
+            if (journal == null) {
+                Path parent = file.toAbsolutePath().getParent();
+                Files.createDirectories(parent);
+                journalFile = Files.createTempFile(parent, file.getFileName().toString(), ".journal");
+                journalFile.toFile().deleteOnExit();
+                journal = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(journalFile)));
+            }
+            write(journal, key, entry);
+        } catch (IOException e) {
+            journalError = e;
+        }
+    }
+
+    private static void write(DataOutputStream out, byte[] key, Entry entry) throws IOException {
+        writeBytes(out, key);
+        out.writeLong(entry.size);
+        out.writeLong(entry.modified);
+        writeBytes(out, entry.fileKey.getBytes(StandardCharsets.UTF_8));
+        writeBytes(out, entry.hash);
+    }
+
+    private static void writeBytes(DataOutputStream out, byte[] bytes) throws IOException {
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    /**
+     * Atomically replaces cache file with entries seen during this run, sorted by path.
+     *
+     * @throws IOException if cache couldn't be written.
+     */
+    synchronized void save() throws IOException {
+        try {
+            if (journal != null) {
+                journal.close();
+            }
+            if (journalError != null) {
+                throw journalError;
+            }
+            Path parent = file.toAbsolutePath().getParent();
+            Files.createDirectories(parent);
+            Path temp = Files.createTempFile(parent, file.getFileName().toString(), ".tmp");
+            try {
+                try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+                    out.writeInt(MAGIC);
+                    out.writeInt(VERSION);
+                    writeBytes(out, mode.getBytes(StandardCharsets.UTF_8));
+                    if (journalFile != null) {
+                        writeSorted(out);
+                    }
+                }
+                Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(temp);
+            }
+        } finally {
+            if (journalFile != null) {
+                Files.deleteIfExists(journalFile);
+            }
+        }
+    }
+
+    // a path may be journaled several times, the last entry is kept
+    private void writeSorted(DataOutputStream out) throws IOException {
+        try (FileChannel channel = FileChannel.open(journalFile, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("Too many files for hash cache");
+            }
+            ByteBuffer entries = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            int[] offsets = index(entries, 0);
+            Integer[] order = new Integer[offsets.length];
+            for (int i = 0; i < order.length; i++) {
+                order[i] = i;
+            }
+            // stable, so entries of the same path stay in journal order
+            Arrays.sort(order, (a, b) -> comparePaths(entries, offsets[a], offsets[b]));
+            for (int i = 0; i < order.length; i++) {
+                int offset = offsets[order[i]];
+                if (i + 1 < order.length && comparePaths(entries, offset, offsets[order[i + 1]]) == 0) {
+                    continue;
+                }
+                byte[] entry = new byte[skip(entries, offset) - offset];
+                entries.get(offset, entry);
+                out.write(entry);
+            }
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package info.kgeorgiy.ja.Zaitsev.walk;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+
+/**
+ * Hashes submitted files and writes results to the output in submission order.
+ * <p>
+ * With a single thread files are hashed inline. Otherwise they are hashed on a fixed pool,
+ * and at most {@code window} results are kept in flight: submitting the next file blocks
+ * until the oldest one is hashed and written, so memory stays bounded for any input size.
+ *
+ * @author Zaitsev Ilya
+ */
+class HashPipeline implements AutoCloseable {
+    private static final int WINDOW_PER_THREAD = 64;
+
+    private final BufferedWriter writer;
+    private final Function<String, byte[]> hasher;
+    private final ExecutorService executor;
+    private final Queue<Pending> pending = new ArrayDeque<>();
+    private final int window;
+    private final HexEncoder hex;
+
+    private static final class Pending {
+        private final String file;
+        private final Future<byte[]> hash;
+
+        private Pending(String file, Future<byte[]> hash) {
+            this.file = file;
+            this.hash = hash;
+        }
+    }
+
+    /**
+     * Creates pipeline writing to {@code writer}.
+     *
+     * @param writer  output for result lines.
+     * @param hasher  function calculating hash of a file, called concurrently from worker threads.
+     * @param lengths lengths of digests concatenated in a hash, each one is written separately.
+     * @param threads number of worker threads, {@code 1} hashes in the calling thread.
+     */
+    HashPipeline(BufferedWriter writer, Function<String, byte[]> hasher, int[] lengths, int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("Threads amount couldn't be less than 1");
+        }
+        this.writer = writer;
+        this.hasher = hasher;
+        this.hex = new HexEncoder(lengths);
+        this.executor = threads == 1 ? null : Executors.newFixedThreadPool(threads);
+        this.window = (int) Math.min(Integer.MAX_VALUE, (long) threads * WINDOW_PER_THREAD);
+    }
+
+    /**
+     * Schedules {@code file} for hashing. Blocks while the reordering window is full.
+     *
+     * @param file path to hash as it was given in input.
+     * @throws IOException if writing of earlier results failed.
+     */
+    void submit(String file) throws IOException {
+        if (executor == null) {
+            write(file, hasher.apply(file));
+            return;
+        }
+        awaitWindow();
+        pending.add(new Pending(file, executor.submit(() -> hasher.apply(file))));
+    }
+
+    /**
+     * Schedules already known {@code hash} of {@code file}, keeping it in submission order.
+     *
+     * @param file path as it was given in input.
+     * @param hash hash to write.
+     * @throws IOException if writing of results failed.
+     */
+    void submit(String file, byte[] hash) throws IOException {
+        if (executor == null) {
+            write(file, hash);
+            return;
+        }
+        awaitWindow();
+        pending.add(new Pending(file, CompletableFuture.completedFuture(hash)));
+    }
+
+    private void awaitWindow() throws IOException {
+        while (pending.size() >= window) {
+            writeOldest();
+        }
+    }
+
+    private void writeOldest() throws IOException {
+        Pending oldest = pending.remove();
+        try {
+            write(oldest.file, oldest.hash.get());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for hash of " + oldest.file);
+        } catch (ExecutionException e) {
+            throw new IOException("Failed to hash " + oldest.file, e.getCause());
+        }
+    }
+
+    private void write(String file, byte[] hash) throws IOException {
+        writer.write(hex.encode(hash), 0, hex.length());
+        writer.write(file);
+        writer.newLine();
+    }
+
+    /**
+     * Writes all pending results and stops worker threads.
+     *
+     * @throws IOException if writing of results failed.
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            while (!pending.isEmpty()) {
+                writeOldest();
+            }
+        } finally {
+            if (executor != null) {
+                executor.shutdownNow();
+            }
+        }
+    }
+}
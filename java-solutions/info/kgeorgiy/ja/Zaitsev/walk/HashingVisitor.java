@@ -0,0 +1,65 @@
+package info.kgeorgiy.ja.Zaitsev.walk;
+
+import java.io.IOException;
+import java.nio.file.FileSystemLoopException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+
+/**
+ * Submits every file met by {@link Files#walkFileTree} to {@link HashPipeline}.
+ * <p>
+ * Directories are read lazily one at a time and the pipeline blocks while its window is full,
+ * so memory depends only on the tree depth, not on the number of files.
+ * Errors are reported and written as failed hashes, the walk continues with the next entry.
+ *
+ * @author Zaitsev Ilya
+ */
+class HashingVisitor extends SimpleFileVisitor<Path> {
+    private final HashPipeline pipeline;
+    private final LinkPolicy links;
+    private final byte[] emptyHash;
+
+    /**
+     * Creates visitor for {@code pipeline}.
+     *
+     * @param pipeline  pipeline to submit files to.
+     * @param links     symbolic links policy, walk should follow links only for {@link LinkPolicy#FOLLOW}.
+     * @param emptyHash hash to write for files that couldn't be visited.
+     */
+    HashingVisitor(HashPipeline pipeline, LinkPolicy links, byte[] emptyHash) {
+        this.pipeline = pipeline;
+        this.links = links;
+        this.emptyHash = emptyHash;
+    }
+
+    @Override
+    public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+        if (attrs.isSymbolicLink() && (links == LinkPolicy.SKIP || Files.isDirectory(file))) {
+            return FileVisitResult.CONTINUE;
+        }
+        pipeline.submit(file.toString());
+        return FileVisitResult.CONTINUE;
+    }
+
+    @Override
+    public FileVisitResult visitFileFailed(Path file, IOException exc) throws IOException {
+        if (exc instanceof FileSystemLoopException) {
+            System.err.println("Directory cycle detected, skipping: " + file);
+        } else {
+            System.err.println("Failed to visit " + file + ": " + exc.getMessage());
+        }
+        pipeline.submit(file.toString(), emptyHash);
+        return FileVisitResult.CONTINUE;
+    }
+
+    @Override
+    public FileVisitResult postVisitDirectory(Path dir, IOException exc) {
+        if (exc != null) {
+            System.err.println("Failed to read directory " + dir + ": " + exc.getMessage());
+        }
+        return FileVisitResult.CONTINUE;
+    }
+}
@@ -0,0 +1,56 @@
+package info.kgeorgiy.ja.Zaitsev.walk;
+
+import java.util.Arrays;
+
+/**
+ * Encodes combined hashes as lowercase hex into a reused buffer.
+ * Not thread-safe: every writer owns its encoder.
+ *
+ * @author Zaitsev Ilya
+ */
+class HexEncoder {
+    private static final char[] DIGITS = "0123456789abcdef".toCharArray();
+
+    private final int[] lengths;
+    private final char[] chars;
+
+    /**
+     * Creates encoder of hashes consisting of digests of given lengths.
+     *
+     * @param lengths lengths of digests concatenated in a hash.
+     */
+    HexEncoder(int[] lengths) {
+        this.lengths = lengths;
+        this.chars = new char[Arrays.stream(lengths).map(length -> length * 2 + 1).sum()];
+    }
+
+    /**
+     * Encodes {@code hash} as hex digests, each one followed by a space.
+     * Result is valid until the next call.
+     *
+     * @param hash combined hash.
+     * @return buffer with {@link #length()} encoded chars.
+     */
+    char[] encode(byte[] hash) {
+        int pos = 0;
+        int offset = 0;
+        for (int length : lengths) {
+            for (int i = offset; i < offset + length; i++) {
+                chars[pos++] = DIGITS[(hash[i] >> 4) & 0xf];
+                chars[pos++] = DIGITS[hash[i] & 0xf];
+            }
+            chars[pos++] = ' ';
+            offset += length;
+        }
+        return chars;
+    }
+
+    /**
+     * Returns number of chars produced by {@link #encode}.
+     *
+     * @return encoded length.
+     */
+    int length() {
+        return chars.length;
+    }
+}
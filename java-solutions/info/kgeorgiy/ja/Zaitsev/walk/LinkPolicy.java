@@ -0,0 +1,21 @@
+package info.kgeorgiy.ja.Zaitsev.walk;
+
+/**
+ * Treatment of symbolic links met during recursive walk.
+ *
+ * @author Zaitsev Ilya
+ */
+enum LinkPolicy {
+    /**
+     * Links are followed, directory cycles are reported as errors.
+     */
+    FOLLOW,
+    /**
+     * Links to files are hashed, links to directories are not entered.
+     */
+    FILES,
+    /**
+     * Links are ignored.
+     */
+    SKIP
+}
@@ -0,0 +1,207 @@
+package info.kgeorgiy.ja.Zaitsev.walk;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Hashes files as Merkle trees over fixed-size chunks, chunks are hashed in parallel.
+ * <p>
+ * Tree is built as in RFC 6962: leaf is {@code H(0x00 || chunk)}, node is {@code H(0x01 || left || right)},
+ * where the left subtree covers the largest power of two chunks less than the node size.
+ * Empty file hashes to {@code H()}. With several digests every one gets its own tree,
+ * but each chunk is still read once.
+ * <p>
+ * Chunks of regular files are read with positional {@link FileChannel#read(ByteBuffer, long)} on the
+ * {@linkplain ForkJoinPool#commonPool() common pool}, so a single huge file uses every core.
+ * Files of unknown size, such as pipes, devices and procfs files, are read sequentially into the same tree.
+ *
+ * @author Zaitsev Ilya
+ */
+class TreeHasher implements ContentHasher {
+    private static final byte LEAF = 0;
+    private static final byte NODE = 1;
+    private static final int BUFFER_SIZE = 1 << 16;
+    private static final int MAX_CHUNKS = Integer.MAX_VALUE - 8;
+
+    private final Digests digests;
+    private final int[] lengths;
+    private final long chunkSize;
+    private final ChunkLog log;
+    private final ThreadLocal<ByteBuffer> buffer = ThreadLocal.withInitial(() -> ByteBuffer.allocateDirect(BUFFER_SIZE));
+
+    /**
+     * Creates tree hasher.
+     *
+     * @param digests   digests to calculate.
+     * @param chunkSize size of leaf chunks.
+     * @param log       log of chunk hashes, or {@code null}.
+     */
+    TreeHasher(Digests digests, long chunkSize, ChunkLog log) {
+        if (chunkSize < 1) {
+            throw new IllegalArgumentException("Chunk size couldn't be less than 1");
+        }
+        this.digests = digests;
+        this.lengths = digests.lengths();
+        this.chunkSize = chunkSize;
+        this.log = log;
+    }
+
+    @Override
+    public byte[] hash(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            byte[][] leaves;
+            byte[] hash;
+            // size is 0 for pipes, devices and procfs files, they are read sequentially until EOF
+            if (size == 0 || !Files.isRegularFile(file)) {
+                leaves = readLeaves(channel, file);
+                hash = leaves.length == 0 ? Digests.digest(digests.get()) : root(leaves, 0, leaves.length);
+            } else {
+                long chunks = (size - 1) / chunkSize + 1;
+                if (chunks > MAX_CHUNKS) {
+                    throw tooManyChunks(file);
+                }
+                leaves = new byte[(int) chunks][];
+                try {
+                    hash = ForkJoinPool.commonPool().invoke(new Subtree(channel, leaves, 0, leaves.length));
+                } catch (UncheckedIOException e) {
+                    throw e.getCause();
+                }
+            }
+            if (log != null) {
+                log.write(file.toString(), leaves);
+            }
+            return hash;
+        }
+    }
+
+    private static IOException tooManyChunks(Path file) {
+        return new IOException("Too many chunks in " + file + ", chunk size should be increased");
+    }
+
+    private byte[][] readLeaves(FileChannel channel, Path file) throws IOException {
+        List<byte[]> leaves = new ArrayList<>();
+        ByteBuffer bytes = buffer.get();
+        MessageDigest[] instances = null;
+        long filled = 0;
+        while (true) {
+            bytes.clear();
+            bytes.limit((int) Math.min(bytes.capacity(), chunkSize - filled));
+            int read = channel.read(bytes);
+            if (read < 0) {
+                break;
+            }
+            if (instances == null) {
+                instances = digests.get();
+                for (MessageDigest digest : instances) {
+                    digest.update(LEAF);
+                }
+            }
+            bytes.flip();
+            for (MessageDigest digest : instances) {
+                bytes.rewind();
+                digest.update(bytes);
+            }
+            filled += read;
+            if (filled == chunkSize) {
+                if (leaves.size() == MAX_CHUNKS) {
+                    throw tooManyChunks(file);
+                }
+                leaves.add(Digests.digest(instances));
+                instances = null;
+                filled = 0;
+            }
+        }
+        if (filled > 0) {
+            leaves.add(Digests.digest(instances));
+        }
+        return leaves.toArray(new byte[0][]);
+    }
+
+    private byte[] root(byte[][] leaves, int from, int to) {
+        if (to - from == 1) {
+            return leaves[from];
+        }
+        int split = from + Integer.highestOneBit(to - from - 1);
+        return node(root(leaves, from, split), root(leaves, split, to));
+    }
+
+    private byte[] leaf(FileChannel channel, long position) throws IOException {
+        MessageDigest[] instances = digests.get();
+        for (MessageDigest digest : instances) {
+            digest.update(LEAF);
+        }
+        ByteBuffer bytes = buffer.get();
+        long end = position + chunkSize;
+        while (position < end) {
+            bytes.clear();
+            bytes.limit((int) Math.min(bytes.capacity(), end - position));
+            int read = channel.read(bytes, position);
+            if (read < 0) {
+                break;
+            }
+            position += read;
+            bytes.flip();
+            for (MessageDigest digest : instances) {
+                bytes.rewind();
+                digest.update(bytes);
+            }
+        }
+        return Digests.digest(instances);
+    }
+
+    private byte[] node(byte[] left, byte[] right) {
+        MessageDigest[] instances = digests.get();
+        int offset = 0;
+        for (int i = 0; i < instances.length; i++) {
+            instances[i].update(NODE);
+            instances[i].update(left, offset, lengths[i]);
+            instances[i].update(right, offset, lengths[i]);
+            offset += lengths[i];
+        }
+        return Digests.digest(instances);
+    }
+
+    private class Subtree extends RecursiveTask<byte[]> {
+        private static final long serialVersionUID = 1L;
+
+        private final FileChannel channel;
+        private final byte[][] leaves;
+        private final int from;
+        private final int to;
+
+        private Subtree(FileChannel channel, byte[][] leaves, int from, int to) {
+            this.channel = channel;
+            this.leaves = leaves;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected byte[] compute() {
+            if (to - from == 1) {
+                try {
+                    leaves[from] = leaf(channel, from * chunkSize);
+                    return leaves[from];
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+            int split = from + Integer.highestOneBit(to - from - 1);
+            Subtree left = new Subtree(channel, leaves, from, split);
+            left.fork();
+            byte[] right = new Subtree(channel, leaves, split, to).compute();
+            return node(left.join(), right);
+        }
+    }
+}
@@ -3,60 +3,196 @@ package info.kgeorgiy.ja.Zaitsev.walk;
 import java.io.BufferedReader;
 import java.io.BufferedWriter;
 import java.io.IOException;
-import java.io.InputStream;
-import java.math.BigInteger;
+import java.io.OutputStreamWriter;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryIteratorException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileVisitOption;
 import java.nio.file.Files;
 import java.nio.file.InvalidPathException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.security.MessageDigest;
+import java.nio.file.attribute.BasicFileAttributes;
 import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.Objects;
+import java.util.Set;
 
 public class Walk {
-    private static final int BUFFER_SIZE = 1024;
-    // :NOTE: EMPTY_SHA
-    private static final byte[] EMPTY_HASH = new byte[20];
-    // :NOTE: move to a const
-    private static final MessageDigest digest = initDigest();
+    private static final String DEFAULT_ALGORITHM = "SHA-1";
+    private static final int OUTPUT_BUFFER_SIZE = 1 << 16;
+    private static final int MAX_THREADS = 1 << 12;
+    private static final String USAGE = "Incorrect arguments. Usage: [-threads <n>] [-map-threshold <bytes>] [-cache <file>] [-recursive] [-links <follow|files|skip>] [-algorithm <name>[,<name>...]] [-tree <bytes> [-chunks <file>]] <inputPath> <outputPath>";
 
-    private static MessageDigest initDigest() {
+    private static byte[] calculateHash(ContentHasher hasher, HashCache cache, String file, byte[] emptyHash) {
         try {
-            return MessageDigest.getInstance("Sha-1");
-        } catch (NoSuchAlgorithmException e) {
-            System.err.println("Failed to initialise MessageDigest:" + e.getMessage());
-            return null;
+            Path path = Paths.get(file);
+            if (cache == null) {
+                return hasher.hash(path);
+            }
+            BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+            byte[] hash = cache.lookup(path, attributes);
+            if (hash == null) {
+                hash = hasher.hash(path);
+                cache.store(path, attributes, hash);
+            }
+            return hash;
+        } catch (IOException | InvalidPathException e) {
+            // :NOTE: logs
+            System.err.println("Failed to read file while calculating hash:" + e.getMessage());
+            return emptyHash;
         }
     }
 
-    private static byte[] calculateSHA(String file) {
-        if (digest == null) {
-            return EMPTY_HASH;
-        }
-        try (InputStream in = Files.newInputStream(Paths.get(file))) {
-            byte[] bytes = new byte[BUFFER_SIZE];
+    private static BufferedWriter newWriter(Path path) throws IOException {
+        return new BufferedWriter(new OutputStreamWriter(Files.newOutputStream(path), StandardCharsets.UTF_8), OUTPUT_BUFFER_SIZE);
+    }
 
-            int readSize;
-            while ((readSize = in.read(bytes)) >= 0) {
-                digest.update(bytes, 0, readSize);
+    private static void walk(String root, HashPipeline pipeline, HashingVisitor visitor,
+                             Set<FileVisitOption> options, byte[] emptyHash) throws IOException {
+        final Path path;
+        try {
+            path = Paths.get(root);
+        } catch (InvalidPathException e) {
+            System.err.println("Invalid path to walk: " + e.getMessage());
+            pipeline.submit(root, emptyHash);
+            return;
+        }
+        // input paths are followed through links as find -H does, links inside obey the policy
+        if (!options.contains(FileVisitOption.FOLLOW_LINKS) && Files.isSymbolicLink(path)) {
+            if (!Files.isDirectory(path)) {
+                pipeline.submit(root);
+                return;
             }
-            return digest.digest();
-        } catch (IOException | InvalidPathException e) {
-            // :NOTE: logs
-            System.err.println("Failed to read file while calculating hash:" + e.getMessage());
-            return EMPTY_HASH;
+            final DirectoryStream<Path> entries;
+            try {
+                entries = Files.newDirectoryStream(path);
+            } catch (IOException e) {
+                visitor.visitFileFailed(path, e);
+                return;
+            }
+            try (entries) {
+                for (Path entry : entries) {
+                    Files.walkFileTree(entry, options, Integer.MAX_VALUE, visitor);
+                }
+            } catch (DirectoryIteratorException e) {
+                visitor.postVisitDirectory(path, e.getCause());
+            }
+            return;
         }
+        Files.walkFileTree(path, options, Integer.MAX_VALUE, visitor);
+    }
+
+    private static String optionValue(String[] args, int idx) {
+        if (idx >= args.length - 2) {
+            throw new IllegalArgumentException("Missing value of option " + args[idx - 1]);
+        }
+        return args[idx];
+    }
+
+    private static LinkPolicy parseLinks(String value) {
+        try {
+            return LinkPolicy.valueOf(value.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unknown links policy: " + value);
+        }
+    }
+
+    private static long parseOption(String[] args, int idx, long min) {
+        return parseOption(args, idx, min, Long.MAX_VALUE);
     }
 
+    private static long parseOption(String[] args, int idx, long min, long max) {
+        final long value;
+        try {
+            value = Long.parseLong(optionValue(args, idx));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Couldn't parse value of option " + args[idx - 1] + ": " + args[idx]);
+        }
+        if (value < min) {
+            throw new IllegalArgumentException("Value of option " + args[idx - 1] + " couldn't be less than " + min);
+        }
+        if (value > max) {
+            throw new IllegalArgumentException("Value of option " + args[idx - 1] + " couldn't be greater than " + max);
+        }
+        return value;
+    }
+
+    /**
+     * Main function. Writes hash of every file listed in input file to output file.
+     *
+     * @param args {@code [options] <inputPath> <outputPath>}, where options are
+     *             <ul>
+     *                 <li>{@code -threads <n>} - hash files on {@code n} worker threads, at most {@code 4096},
+     *                 results keep input order;</li>
+     *                 <li>{@code -map-threshold <bytes>} - memory-map files of at least this size;</li>
+     *                 <li>{@code -cache <file>} - reuse hashes of unchanged files stored in cache file;</li>
+     *                 <li>{@code -recursive} - walk every input path recursively;</li>
+     *                 <li>{@code -links <follow|files|skip>} - symbolic links policy of recursive walk,
+     *                 {@code files} by default, input paths that are links are always followed;</li>
+     *                 <li>{@code -algorithm <names>} - comma-separated digest algorithms calculated in one pass,
+     *                 {@code SHA-1} by default, {@code xxHash64} is supported besides standard ones;</li>
+     *                 <li>{@code -tree <bytes>} - hash files as Merkle trees of chunks of this size, chunks are hashed
+     *                 in parallel;</li>
+     *                 <li>{@code -chunks <file>} - write hashes of tree chunks to this file, can't be used with cache.</li>
+     *             </ul>
+     */
     public static void main(String[] args) {
-        if (args == null || args.length != 2 || args[0] == null || args[1] == null) {
-            System.err.println("Incorrect arguments. Usage: <inputPath> <outputPath>");
+        if (args == null || args.length < 2 || Arrays.stream(args).anyMatch(Objects::isNull)) {
+            System.err.println(USAGE);
+            return;
+        }
+        int threads = 1;
+        long mapThreshold = FileHasher.DEFAULT_MAP_THRESHOLD;
+        String cacheFile = null;
+        boolean recursive = false;
+        LinkPolicy links = LinkPolicy.FILES;
+        String algorithms = DEFAULT_ALGORITHM;
+        long chunkSize = 0;
+        String chunksFile = null;
+        int argPos = 0;
+        try {
+            for (; argPos < args.length - 2; argPos++) {
+                switch (args[argPos]) {
+                    case "-threads" -> threads = (int) parseOption(args, ++argPos, 1, MAX_THREADS);
+                    case "-map-threshold" -> mapThreshold = parseOption(args, ++argPos, 0);
+                    case "-cache" -> cacheFile = optionValue(args, ++argPos);
+                    case "-recursive" -> recursive = true;
+                    case "-links" -> links = parseLinks(optionValue(args, ++argPos));
+                    case "-algorithm" -> algorithms = optionValue(args, ++argPos);
+                    case "-tree" -> chunkSize = parseOption(args, ++argPos, 1);
+                    case "-chunks" -> chunksFile = optionValue(args, ++argPos);
+                    default -> throw new IllegalArgumentException("Unknown option " + args[argPos]);
+                }
+            }
+            if (chunksFile != null && (chunkSize == 0 || cacheFile != null)) {
+                throw new IllegalArgumentException("Option -chunks requires -tree and can't be used with -cache");
+            }
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.println(USAGE);
+            return;
+        }
+        final Digests digests;
+        try {
+            digests = new Digests(algorithms.split(","));
+        } catch (NoSuchAlgorithmException e) {
+            System.err.println("Failed to initialise MessageDigest:" + e.getMessage());
+            return;
+        }
+        final HashCache cache;
+        try {
+            cache = cacheFile == null ? null : HashCache.load(Paths.get(cacheFile),
+                    chunkSize == 0 ? digests.mode() : digests.mode() + "/tree:" + chunkSize);
+        } catch (InvalidPathException e) {
+            System.err.println("Invalid cache file path: " + e.getMessage());
             return;
         }
 
         Path in;
         try {
-            in = Paths.get(args[0]);
+            in = Paths.get(args[argPos]);
         } catch (InvalidPathException e) {
             System.err.println("Invalid input file path:" + e.getMessage());
             return;
@@ -64,11 +200,18 @@ public class Walk {
 
         Path out;
         try {
-            out = Paths.get(args[1]);
+            out = Paths.get(args[argPos + 1]);
         } catch (InvalidPathException e) {
             System.err.println("Invalid output file path: " + e.getMessage());
             return;
         }
+        Path chunks;
+        try {
+            chunks = chunksFile == null ? null : Paths.get(chunksFile);
+        } catch (InvalidPathException e) {
+            System.err.println("Invalid chunks file path: " + e.getMessage());
+            return;
+        }
         try {
             if (out.getParent() != null) {
                 Files.createDirectories(out.getParent());
@@ -79,11 +222,26 @@ public class Walk {
         }
 
         try (BufferedReader reader = Files.newBufferedReader(in, StandardCharsets.UTF_8)) {
-            try (BufferedWriter writer = Files.newBufferedWriter(out, StandardCharsets.UTF_8)) {
-                String curFile;
-                while ((curFile = reader.readLine()) != null) {
-                    byte[] hash = calculateSHA(curFile);
-                    writer.write(String.format("%0" + (hash.length * 2) + "x %s%n", new BigInteger(1, hash), curFile));
+            try (BufferedWriter writer = newWriter(out);
+                 BufferedWriter chunkWriter = chunks == null ? null : newWriter(chunks)) {
+                final ContentHasher hasher = chunkSize == 0
+                        ? new FileHasher(digests, mapThreshold)
+                        : new TreeHasher(digests, chunkSize, chunkWriter == null ? null : new ChunkLog(chunkWriter, digests.lengths()));
+                final byte[] emptyHash = digests.emptyHash();
+                try (HashPipeline pipeline = new HashPipeline(writer, file -> calculateHash(hasher, cache, file, emptyHash),
+                        digests.lengths(), threads)) {
+                    final HashingVisitor visitor = recursive ? new HashingVisitor(pipeline, links, emptyHash) : null;
+                    final Set<FileVisitOption> walkOptions = links == LinkPolicy.FOLLOW
+                            ? EnumSet.of(FileVisitOption.FOLLOW_LINKS)
+                            : EnumSet.noneOf(FileVisitOption.class);
+                    String curFile;
+                    while ((curFile = reader.readLine()) != null) {
+                        if (visitor == null) {
+                            pipeline.submit(curFile);
+                        } else {
+                            walk(curFile, pipeline, visitor, walkOptions, emptyHash);
+                        }
+                    }
                 }
             } catch (IOException e) {
                 System.err.println("I/O exception while writing to output file: " + e.getMessage());
@@ -93,5 +251,13 @@ public class Walk {
             System.err.println("I/O exception while reading input file: " + e.getMessage());
             // :NOTE: securityException
         }
+
+        if (cache != null) {
+            try {
+                cache.save();
+            } catch (IOException e) {
+                System.err.println("Couldn't save hash cache: " + e.getMessage());
+            }
+        }
     }
 }
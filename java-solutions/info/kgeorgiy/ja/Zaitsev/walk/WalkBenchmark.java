@@ -0,0 +1,202 @@
+package info.kgeorgiy.ja.Zaitsev.walk;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+/**
+ * Throughput benchmark of {@link Walk} hashing modes over synthetic file sets.
+ * <p>
+ * Generates many tiny files, a few huge files and a mix of both in a temporary directory,
+ * then hashes every set in every mode and prints MB/s and files/s.
+ * Files are read from the page cache after the first iteration, so results show CPU and
+ * syscall costs of a mode rather than disk speed.
+ * <p>
+ * Mode {@code stream} reproduces the original {@code InputStream} read path and serves as the baseline.
+ *
+ * @author Zaitsev Ilya
+ */
+public class WalkBenchmark {
+    private static final int WARMUP = 2;
+    private static final int ITERATIONS = 5;
+    private static final int STREAM_BUFFER_SIZE = 1024;
+    private static final int THREADS = Runtime.getRuntime().availableProcessors();
+    private static final long TREE_CHUNK = 1 << 22;
+
+    private static final class DataSet {
+        private final String name;
+        private final List<String> files;
+        private final long bytes;
+
+        private DataSet(String name, List<String> files, long bytes) {
+            this.name = name;
+            this.files = files;
+            this.bytes = bytes;
+        }
+    }
+
+    private static final class Mode {
+        private final String name;
+        private final ContentHasher hasher;
+        private final int threads;
+
+        private Mode(String name, ContentHasher hasher, int threads) {
+            this.name = name;
+            this.hasher = hasher;
+            this.threads = threads;
+        }
+    }
+
+    private static DataSet generate(Path dir, String name, int count, int size, Random random) throws IOException {
+        Files.createDirectories(dir.resolve(name));
+        List<String> files = new ArrayList<>(count);
+        byte[] bytes = new byte[size];
+        for (int i = 0; i < count; i++) {
+            random.nextBytes(bytes);
+            Path file = dir.resolve(name).resolve(Integer.toString(i));
+            Files.write(file, bytes);
+            files.add(file.toString());
+        }
+        return new DataSet(name, files, (long) count * size);
+    }
+
+    private static DataSet mix(String name, DataSet... sets) {
+        List<String> files = new ArrayList<>();
+        long bytes = 0;
+        for (DataSet set : sets) {
+            files.addAll(set.files);
+            bytes += set.bytes;
+        }
+        return new DataSet(name, files, bytes);
+    }
+
+    private static ContentHasher streamHasher(Digests digests) {
+        return file -> {
+            MessageDigest[] instances = digests.get();
+            try (InputStream in = Files.newInputStream(file)) {
+                byte[] bytes = new byte[STREAM_BUFFER_SIZE];
+                int readSize;
+                while ((readSize = in.read(bytes)) >= 0) {
+                    instances[0].update(bytes, 0, readSize);
+                }
+            }
+            return Digests.digest(instances);
+        };
+    }
+
+    private static double run(DataSet set, Mode mode, int[] lengths, Path out) throws IOException {
+        Function<String, byte[]> hasher = file -> {
+            try {
+                return mode.hasher.hash(Path.of(file));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        };
+        long start = System.nanoTime();
+        try (BufferedWriter writer = new BufferedWriter(
+                new OutputStreamWriter(Files.newOutputStream(out), StandardCharsets.UTF_8), 1 << 16);
+             HashPipeline pipeline = new HashPipeline(writer, hasher, lengths, mode.threads)) {
+            for (String file : set.files) {
+                pipeline.submit(file);
+            }
+        }
+        return (System.nanoTime() - start) / 1e9;
+    }
+
+    private static void measure(DataSet set, Mode mode, int[] lengths, Path out) throws IOException {
+        for (int i = 0; i < WARMUP; i++) {
+            run(set, mode, lengths, out);
+        }
+        double best = Double.MAX_VALUE;
+        double total = 0;
+        for (int i = 0; i < ITERATIONS; i++) {
+            double time = run(set, mode, lengths, out);
+            best = Math.min(best, time);
+            total += time;
+        }
+        double average = total / ITERATIONS;
+        System.out.printf("%-8s %-10s %10.1f MB/s %12.0f files/s (best %.3f s, avg %.3f s)%n",
+                set.name, mode.name, set.bytes / average / (1 << 20), set.files.size() / average, best, average);
+    }
+
+    private static void delete(Path dir) throws IOException {
+        try (Stream<Path> paths = Files.walk(dir)) {
+            for (Path path : (Iterable<Path>) paths.sorted(Comparator.reverseOrder())::iterator) {
+                Files.delete(path);
+            }
+        }
+    }
+
+    /**
+     * Main function. Generates data sets, runs every mode and prints results.
+     *
+     * @param args {@code [<tiny files> <tiny size> <huge files> <huge size>]},
+     *             {@code 20000} files of {@code 1024} bytes and {@code 4} files of {@code 64 MiB} by default.
+     */
+    public static void main(String[] args) {
+        int[] sizes = {20000, 1024, 4, 1 << 26};
+        try {
+            for (int i = 0; i < Math.min(args.length, sizes.length); i++) {
+                sizes[i] = Integer.parseInt(args[i]);
+            }
+        } catch (NumberFormatException e) {
+            System.err.println("Incorrect arguments. Usage: [<tiny files> <tiny size> <huge files> <huge size>]");
+            return;
+        }
+
+        final Digests digests;
+        try {
+            digests = new Digests("SHA-1");
+        } catch (NoSuchAlgorithmException e) {
+            System.err.println("Failed to initialise MessageDigest:" + e.getMessage());
+            return;
+        }
+        List<Mode> modes = List.of(
+                new Mode("stream", streamHasher(digests), 1),
+                new Mode("channel", new FileHasher(digests, Long.MAX_VALUE), 1),
+                new Mode("mmap", new FileHasher(digests, 0), 1),
+                new Mode("default", new FileHasher(digests, FileHasher.DEFAULT_MAP_THRESHOLD), 1),
+                new Mode("parallel", new FileHasher(digests, FileHasher.DEFAULT_MAP_THRESHOLD), THREADS),
+                new Mode("tree", new TreeHasher(digests, TREE_CHUNK, null), 1),
+                new Mode("tree-par", new TreeHasher(digests, TREE_CHUNK, null), THREADS)
+        );
+
+        Path dir = null;
+        try {
+            dir = Files.createTempDirectory("walk-benchmark");
+            Random random = new Random(4875043285743285204L);
+            DataSet tiny = generate(dir, "tiny", sizes[0], sizes[1], random);
+            DataSet huge = generate(dir, "huge", sizes[2], sizes[3], random);
+            List<DataSet> sets = List.of(tiny, huge, mix("mixed", tiny, huge));
+            Path out = dir.resolve("out.txt");
+            for (DataSet set : sets) {
+                for (Mode mode : modes) {
+                    measure(set, mode, digests.lengths(), out);
+                }
+            }
+        } catch (IOException | UncheckedIOException e) {
+            System.err.println("Benchmark failed: " + e.getMessage());
+        } finally {
+            if (dir != null) {
+                try {
+                    delete(dir);
+                } catch (IOException e) {
+                    System.err.println("Couldn't delete temporary directory " + dir + ": " + e.getMessage());
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,166 @@
+package info.kgeorgiy.ja.Zaitsev.walk;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.security.MessageDigest;
+
+/**
+ * Non-cryptographic <a href="https://github.com/Cyan4973/xxHash">xxHash64</a> with zero seed,
+ * exposed as {@link MessageDigest} so it can be used wherever a digest is expected.
+ * Digest is the 64-bit hash in big-endian order, as printed by the reference implementation.
+ *
+ * @author Zaitsev Ilya
+ */
+class XxHash64 extends MessageDigest {
+    /**
+     * Algorithm name accepted by {@link Walk}.
+     */
+    static final String ALGORITHM = "XXHASH64";
+
+    private static final long PRIME1 = 0x9E3779B185EBCA87L;
+    private static final long PRIME2 = 0xC2B2AE3D27D4EB4FL;
+    private static final long PRIME3 = 0x165667B19E3779F9L;
+    private static final long PRIME4 = 0x85EBCA77C2B2AE63L;
+    private static final long PRIME5 = 0x27D4EB2F165667C5L;
+    private static final int STRIPE = 32;
+    private static final VarHandle LONGS = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+    private static final VarHandle INTS = MethodHandles.byteArrayViewVarHandle(int[].class, ByteOrder.LITTLE_ENDIAN);
+
+    private final byte[] tail = new byte[STRIPE];
+    private int tailSize;
+    private long total;
+    private long v1;
+    private long v2;
+    private long v3;
+    private long v4;
+
+    /**
+     * Creates digest in initial state.
+     */
+    XxHash64() {
+        super(ALGORITHM);
+        engineReset();
+    }
+
+    private static long round(long acc, long input) {
+        return Long.rotateLeft(acc + input * PRIME2, 31) * PRIME1;
+    }
+
+    private static long merge(long acc, long v) {
+        return (acc ^ round(0, v)) * PRIME1 + PRIME4;
+    }
+
+    private void stripe(long l1, long l2, long l3, long l4) {
+        v1 = round(v1, l1);
+        v2 = round(v2, l2);
+        v3 = round(v3, l3);
+        v4 = round(v4, l4);
+    }
+
+    @Override
+    protected int engineGetDigestLength() {
+        return Long.BYTES;
+    }
+
+    @Override
+    protected void engineUpdate(byte input) {
+        engineUpdate(new byte[]{input}, 0, 1);
+    }
+
+    @Override
+    protected void engineUpdate(byte[] input, int offset, int len) {
+        total += len;
+        if (tailSize > 0) {
+            int n = Math.min(len, STRIPE - tailSize);
+            System.arraycopy(input, offset, tail, tailSize, n);
+            tailSize += n;
+            offset += n;
+            len -= n;
+            if (tailSize < STRIPE) {
+                return;
+            }
+            stripe((long) LONGS.get(tail, 0), (long) LONGS.get(tail, 8), (long) LONGS.get(tail, 16), (long) LONGS.get(tail, 24));
+            tailSize = 0;
+        }
+        int end = offset + len - len % STRIPE;
+        for (; offset < end; offset += STRIPE) {
+            stripe((long) LONGS.get(input, offset), (long) LONGS.get(input, offset + 8),
+                    (long) LONGS.get(input, offset + 16), (long) LONGS.get(input, offset + 24));
+        }
+        tailSize = len % STRIPE;
+        System.arraycopy(input, end, tail, 0, tailSize);
+    }
+
+    @Override
+    protected void engineUpdate(ByteBuffer input) {
+        if (input.hasArray() || tailSize > 0 || input.remaining() < STRIPE) {
+            super.engineUpdate(input);
+            return;
+        }
+        boolean swap = input.order() != ByteOrder.LITTLE_ENDIAN;
+        int position = input.position();
+        int end = input.limit() - input.remaining() % STRIPE;
+        total += end - position;
+        for (; position < end; position += STRIPE) {
+            long l1 = input.getLong(position);
+            long l2 = input.getLong(position + 8);
+            long l3 = input.getLong(position + 16);
+            long l4 = input.getLong(position + 24);
+            if (swap) {
+                stripe(Long.reverseBytes(l1), Long.reverseBytes(l2), Long.reverseBytes(l3), Long.reverseBytes(l4));
+            } else {
+                stripe(l1, l2, l3, l4);
+            }
+        }
+        input.position(end);
+        super.engineUpdate(input);
+    }
+
+    @Override
+    protected byte[] engineDigest() {
+        long h;
+        if (total >= STRIPE) {
+            h = Long.rotateLeft(v1, 1) + Long.rotateLeft(v2, 7) + Long.rotateLeft(v3, 12) + Long.rotateLeft(v4, 18);
+            h = merge(h, v1);
+            h = merge(h, v2);
+            h = merge(h, v3);
+            h = merge(h, v4);
+        } else {
+            h = PRIME5;
+        }
+        h += total;
+
+        int i = 0;
+        for (; i + Long.BYTES <= tailSize; i += Long.BYTES) {
+            h = Long.rotateLeft(h ^ round(0, (long) LONGS.get(tail, i)), 27) * PRIME1 + PRIME4;
+        }
+        if (i + Integer.BYTES <= tailSize) {
+            h = Long.rotateLeft(h ^ (((int) INTS.get(tail, i)) & 0xFFFFFFFFL) * PRIME1, 23) * PRIME2 + PRIME3;
+            i += Integer.BYTES;
+        }
+        for (; i < tailSize; i++) {
+            h = Long.rotateLeft(h ^ (tail[i] & 0xFF) * PRIME5, 11) * PRIME1;
+        }
+
+        h ^= h >>> 33;
+        h *= PRIME2;
+        h ^= h >>> 29;
+        h *= PRIME3;
+        h ^= h >>> 32;
+
+        engineReset();
+        return ByteBuffer.allocate(Long.BYTES).putLong(h).array();
+    }
+
+    @Override
+    protected void engineReset() {
+        v1 = PRIME1 + PRIME2;
+        v2 = PRIME2;
+        v3 = 0;
+        v4 = -PRIME1;
+        total = 0;
+        tailSize = 0;
+    }
+}